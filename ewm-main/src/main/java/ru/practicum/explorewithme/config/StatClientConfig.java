@@ -0,0 +1,31 @@
+package ru.practicum.explorewithme.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import ru.practicum.HitBatcher;
+import ru.practicum.StatClient;
+
+import java.time.Duration;
+
+@Configuration
+public class StatClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public StatClient statClient(@Value("${STATS_SERVER_URL:http://localhost:9090}") String serverUrl,
+                                 @Value("${STATS_WIRE_FORMAT:application/json}") String wireFormat,
+                                 @Value("${stats.client.batch.enabled:true}") boolean batchEnabled,
+                                 @Value("${stats.client.batch.capacity:10000}") int capacity,
+                                 @Value("${stats.client.batch.size:500}") int batchSize,
+                                 @Value("${stats.client.batch.flush-interval-ms:1000}") long flushIntervalMs,
+                                 @Value("${stats.client.batch.overflow-policy:DROP_OLDEST}")
+                                 HitBatcher.OverflowPolicy overflowPolicy) {
+        MediaType format = MediaType.parseMediaType(wireFormat);
+        if (!batchEnabled) {
+            return new StatClient(serverUrl, format);
+        }
+        return new StatClient(serverUrl, format, capacity, batchSize, Duration.ofMillis(flushIntervalMs),
+                overflowPolicy);
+    }
+}
@@ -4,7 +4,6 @@ import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -36,10 +35,9 @@ public class PublicEventController {
     final StatClient client;
 
     @Autowired
-    public PublicEventController(EventService eventService,
-                                 @Value("${STATS_SERVER_URL:http://localhost:9090}") String serverUrl) {
+    public PublicEventController(EventService eventService, StatClient client) {
         this.eventService = eventService;
-        this.client = new StatClient(serverUrl);
+        this.client = client;
     }
 
     @GetMapping
@@ -69,8 +67,7 @@ public class PublicEventController {
         }
         List<EventShortDto> result = eventService.getPublishedEvents(text, categories, paid, rangeStart, rangeEnd,
                 onlyAvailable, from, size, sortOption);
-        client.addHit("ewm-main-service", request.getRequestURI(), request.getRemoteAddr(),
-                LocalDateTime.now()).block();
+        client.recordHit("ewm-main-service", request.getRequestURI(), request.getRemoteAddr(), LocalDateTime.now());
         return result;
     }
 
@@ -78,8 +75,7 @@ public class PublicEventController {
     public EventFullDto getPublishedEventById(@PathVariable Long id, HttpServletRequest request) {
         log.trace("Запрос опубликованного события {}", id);
         EventFullDto result = eventService.getPublishedEventById(id);
-        client.addHit("ewm-main-service", request.getRequestURI(), request.getRemoteAddr(),
-                LocalDateTime.now()).block();
+        client.recordHit("ewm-main-service", request.getRequestURI(), request.getRemoteAddr(), LocalDateTime.now());
         return result;
     }
 }
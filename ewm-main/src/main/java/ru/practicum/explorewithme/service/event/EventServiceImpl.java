@@ -3,10 +3,10 @@ package ru.practicum.explorewithme.service.event;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPAExpressions;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
 import ru.practicum.StatClient;
 import ru.practicum.ViewStats;
 import ru.practicum.explorewithme.model.EventSortOption;
@@ -42,6 +42,8 @@ import java.util.stream.Collectors;
 @Service
 @Transactional(readOnly = true)
 public class EventServiceImpl implements EventService {
+    private static final int VIEWS_URI_LIST_LIMIT = 100;
+
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
@@ -52,15 +54,14 @@ public class EventServiceImpl implements EventService {
 
     public EventServiceImpl(EventRepository eventRepository, UserRepository userRepository,
                             CategoryRepository categoryRepository, LocationRepository locationRepository,
-                            EventMapper mapper, RequestRepository requestRepository,
-                            @Value("${STATS_SERVER_URL:http://localhost:9090}") String serverUrl) {
+                            EventMapper mapper, RequestRepository requestRepository, StatClient client) {
         this.eventRepository = eventRepository;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.locationRepository = locationRepository;
         this.mapper = mapper;
         this.requestRepository = requestRepository;
-        this.client = new StatClient(serverUrl);
+        this.client = client;
     }
 
     @Override
@@ -427,17 +428,24 @@ public class EventServiceImpl implements EventService {
         if (ids == null || ids.isEmpty()) {
             return new HashMap<>();
         }
-        List<ViewStats> stats = client.getStats(from,
-                        LocalDateTime.now(),
-                        ids.stream().map(id -> "/events/" + id).collect(Collectors.toList()),
-                        true)
+        List<String> uris = ids.stream().distinct().map(id -> "/events/" + id).collect(Collectors.toList());
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < uris.size(); i += VIEWS_URI_LIST_LIMIT) {
+            chunks.add(uris.subList(i, Math.min(i + VIEWS_URI_LIST_LIMIT, uris.size())));
+        }
+        LocalDateTime to = LocalDateTime.now();
+        List<ViewStats> stats = Flux.fromIterable(chunks)
+                .flatMap(chunk -> client.getStats(from, to, chunk, true, false))
+                .flatMapIterable(chunk -> chunk)
+                .collectList()
                 .block();
         if (stats == null || stats.isEmpty()) {
             return new HashMap<>();
         }
         return stats.stream().collect(Collectors.toMap(
                 stat -> Long.parseLong(stat.getUri().replace("/events/", "")),
-                ViewStats::getHits
+                ViewStats::getHits,
+                Long::sum
         ));
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package ru.practicum.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.practicum.StatService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HttpIngestBenchmark {
+    private static final int POOL_SIZE = 1024;
+    private static final int CONCURRENCY = 512;
+
+    @Param({"servlet", "reactive"})
+    private String web;
+
+    @Param({"hitlog"})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private Path directory;
+    private HttpClient client;
+    private HttpRequest[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("stat-bench");
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(StatService.class)
+                .logStartupInfo(false)
+                .properties("logging.level.root=WARN", "stats.storage=" + storage);
+        if ("reactive".equals(web)) {
+            builder.profiles("reactive");
+        }
+        if ("hitlog".equals(storage)) {
+            builder.profiles("hitlog").properties("stats.hitlog.directory=" + directory);
+        }
+        context = builder.run("--server.port=0");
+        URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/hit");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        requests = new HttpRequest[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            String body = "{\"app\":\"ewm-main-service\",\"uri\":\"/events/" + (i % 64) + "\",\"ip\":\"10.0." +
+                    (i / 256) + "." + (i % 256) + "\",\"timestamp\":\"" + formatter.format(now.minusSeconds(i)) + "\"}";
+            requests[i] = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public void hit() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[CONCURRENCY];
+        for (int i = 0; i < CONCURRENCY; i++) {
+            responses[i] = client.sendAsync(requests[next++ & (POOL_SIZE - 1)], HttpResponse.BodyHandlers.discarding());
+        }
+        CompletableFuture.allOf(responses).join();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.practicum.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.StatService;
+import ru.practicum.controller.StatController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IngestBenchmark {
+    private static final int POOL_SIZE = 1024;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"hitlog"})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private StatController controller;
+    private Path directory;
+    private EndpointHitDto[] hits;
+    private List<List<EndpointHitDto>> batches;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("stat-bench");
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(StatService.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties("logging.level.root=WARN", "stats.storage=" + storage);
+        if ("hitlog".equals(storage)) {
+            builder.profiles("hitlog").properties("stats.hitlog.directory=" + directory);
+        }
+        context = builder.run();
+        controller = context.getBean(StatController.class);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        hits = new EndpointHitDto[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            hits[i] = new EndpointHitDto(null, "ewm-main-service", "/events/" + (i % 64),
+                    "10.0." + (i / 256) + "." + (i % 256), now.minusSeconds(i), null);
+        }
+        batches = new ArrayList<>();
+        for (int i = 0; i < POOL_SIZE; i += BATCH_SIZE) {
+            batches.add(List.of(hits).subList(i, Math.min(i + BATCH_SIZE, POOL_SIZE)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public EndpointHitDto hit() {
+        return controller.create(hits[next++ & (POOL_SIZE - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void batch() {
+        controller.createBatch(batches.get(next++ % (POOL_SIZE / BATCH_SIZE)));
+    }
+}
@@ -0,0 +1,164 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class HitBatcher implements MeterBinder, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(HitBatcher.class);
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration CALLER_SEND_TIMEOUT = Duration.ofSeconds(2);
+
+    public enum OverflowPolicy {
+        DROP_NEWEST,
+        DROP_OLDEST,
+        CALLER_RUNS
+    }
+
+    private final Function<List<EndpointHitDto>, Mono<Void>> sender;
+    private final Function<List<EndpointHitDto>, Mono<Void>> callerSender;
+    private final Queue<EndpointHitDto> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final int capacity;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final ScheduledExecutorService scheduler;
+
+    public HitBatcher(Function<List<EndpointHitDto>, Mono<Void>> sender, int capacity, int batchSize,
+                      Duration flushInterval, OverflowPolicy overflowPolicy) {
+        this(sender, sender, capacity, batchSize, flushInterval, overflowPolicy);
+    }
+
+    public HitBatcher(Function<List<EndpointHitDto>, Mono<Void>> sender,
+                      Function<List<EndpointHitDto>, Mono<Void>> callerSender, int capacity, int batchSize,
+                      Duration flushInterval, OverflowPolicy overflowPolicy) {
+        this.sender = sender;
+        this.callerSender = callerSender;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stat-client-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void offer(EndpointHitDto hit) {
+        if (reserve()) {
+            queue.offer(hit);
+        } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST && queue.poll() != null) {
+            queue.offer(hit);
+            dropped.increment();
+        } else if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+            send(callerSender, List.of(hit), CALLER_SEND_TIMEOUT);
+        } else {
+            dropped.increment();
+        }
+        if (size.get() >= batchSize && !scheduler.isShutdown() && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public int getQueued() {
+        return size.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("stats.client.hits", sent, LongAdder::sum).tag("result", "sent").register(registry);
+        FunctionCounter.builder("stats.client.hits", dropped, LongAdder::sum).tag("result", "dropped")
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits", failed, LongAdder::sum).tag("result", "failed")
+                .register(registry);
+        Gauge.builder("stats.client.queue.size", size, AtomicInteger::get).register(registry);
+        Gauge.builder("stats.client.queue.capacity", () -> capacity).register(registry);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        if (scheduler.awaitTermination(SEND_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            flush();
+        }
+    }
+
+    private boolean reserve() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void flush() {
+        flushRequested.set(false);
+        List<EndpointHitDto> batch;
+        do {
+            batch = new ArrayList<>(batchSize);
+            EndpointHitDto hit;
+            while (batch.size() < batchSize && (hit = queue.poll()) != null) {
+                size.decrementAndGet();
+                batch.add(hit);
+            }
+            if (!batch.isEmpty()) {
+                send(sender, batch, SEND_TIMEOUT);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private void send(Function<List<EndpointHitDto>, Mono<Void>> target, List<EndpointHitDto> batch,
+                      Duration timeout) {
+        try {
+            target.apply(batch).block(timeout);
+            sent.add(batch.size());
+        } catch (RuntimeException e) {
+            failed.add(batch.size());
+            log.warn("Не удалось отправить {} записей о просмотрах в сервис статистики: {}", batch.size(),
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+public class ShardRing {
+    private static final int VIRTUAL_NODES = 160;
+
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+    private final int size;
+
+    public ShardRing(List<String> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Не задан ни один сервер статистики");
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                ring.put(hash(shards.get(shard) + "#" + node), shard);
+            }
+        }
+        this.size = shards.size();
+    }
+
+    public int shardOf(String key) {
+        if (size == 1) {
+            return 0;
+        }
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,40 +1,133 @@
 package ru.practicum;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
-public class StatClient {
-
+public class StatClient implements MeterBinder, AutoCloseable {
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    private static final Logger log = LoggerFactory.getLogger(StatClient.class);
     private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private final WebClient client;
+    private static final int HIT_RETRIES = 3;
+    private static final Duration HIT_RETRY_BACKOFF = Duration.ofMillis(200);
+    private static final String WILDCARD = "*";
+    private final List<WebClient> shards;
+    private final ShardRing ring;
+    private HitBatcher batcher;
 
     public StatClient(@Value("${STATS_SERVER_URL}") String serverUrl) {
-        this.client = WebClient.builder()
-                .baseUrl(serverUrl)
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+        this(serverUrl, MediaType.APPLICATION_JSON);
+    }
+
+    public StatClient(String serverUrl, MediaType wireFormat) {
+        this(List.of(serverUrl.trim().split("\\s*,\\s*")), wireFormat);
+    }
+
+    public StatClient(String serverUrl, MediaType wireFormat, int queueCapacity, int batchSize, Duration flushInterval,
+                      HitBatcher.OverflowPolicy overflowPolicy) {
+        this(serverUrl, wireFormat);
+        this.batcher = new HitBatcher(this::addHits, hits -> addHits(hits, 0), queueCapacity, batchSize,
+                flushInterval, overflowPolicy);
+    }
+
+    public StatClient(List<String> serverUrls, MediaType wireFormat) {
+        this.shards = serverUrls.stream()
+                .map(serverUrl -> WebClient.builder()
+                        .baseUrl(serverUrl)
+                        .defaultHeader(HttpHeaders.CONTENT_TYPE, wireFormat.toString())
+                        .defaultHeader(HttpHeaders.ACCEPT, wireFormat.toString())
+                        .build())
+                .collect(Collectors.toList());
+        this.ring = new ShardRing(serverUrls);
     }
 
     public Mono<EndpointHitDto> addHit(String app, String uri, String ip, LocalDateTime timestamp) {
-        return client
+        return addHit(app, uri, ip, timestamp, null);
+    }
+
+    public Mono<EndpointHitDto> addHit(String app, String uri, String ip, LocalDateTime timestamp, String dedupKey) {
+        return shards.get(ring.shardOf(uri))
                 .post()
                 .uri("/hit")
-                .bodyValue(new EndpointHitDto(null, app, uri, ip, timestamp))
+                .bodyValue(new EndpointHitDto(null, app, uri, ip, timestamp, dedupKey))
                 .retrieve()
-                .bodyToMono(EndpointHitDto.class);
+                .bodyToMono(EndpointHitDto.class)
+                .retryWhen(Retry.backoff(HIT_RETRIES, HIT_RETRY_BACKOFF).filter(StatClient::isRetryable));
+    }
+
+    public Mono<Void> addHits(List<EndpointHitDto> hits) {
+        return addHits(hits, HIT_RETRIES);
+    }
+
+    private Mono<Void> addHits(List<EndpointHitDto> hits, int retries) {
+        Map<Integer, List<EndpointHitDto>> routed = new LinkedHashMap<>();
+        for (EndpointHitDto hit : hits) {
+            routed.computeIfAbsent(ring.shardOf(hit.getUri()), shard -> new ArrayList<>()).add(hit);
+        }
+        return Flux.fromIterable(routed.entrySet())
+                .flatMap(shard -> shards.get(shard.getKey())
+                        .post()
+                        .uri("/hits/batch")
+                        .bodyValue(shard.getValue())
+                        .retrieve()
+                        .toBodilessEntity()
+                        .retryWhen(Retry.backoff(retries, HIT_RETRY_BACKOFF).filter(StatClient::isRetryable)))
+                .then();
+    }
+
+    public void recordHit(String app, String uri, String ip, LocalDateTime timestamp) {
+        recordHit(app, uri, ip, timestamp, null);
+    }
+
+    public void recordHit(String app, String uri, String ip, LocalDateTime timestamp, String dedupKey) {
+        if (batcher != null) {
+            batcher.offer(new EndpointHitDto(null, app, uri, ip, timestamp, dedupKey));
+            return;
+        }
+        addHit(app, uri, ip, timestamp, dedupKey).subscribe(hit -> {
+        }, e -> log.warn("Не удалось отправить запись о просмотре {} в сервис статистики: {}", uri, e.getMessage()));
     }
 
     public Mono<List<ViewStats>> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        return getStats(start, end, uris, unique, null);
+    }
+
+    public Mono<List<ViewStats>> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                          Boolean exact) {
+        if (shards.size() == 1) {
+            return getStats(shards.get(0), start, end, uris, unique, exact);
+        }
+        return Flux.fromIterable(route(uris).entrySet())
+                .flatMap(shard -> getStats(shards.get(shard.getKey()), start, end, shard.getValue(), unique, exact))
+                .collectList()
+                .map(StatClient::merge);
+    }
+
+    private Mono<List<ViewStats>> getStats(WebClient client, LocalDateTime start, LocalDateTime end, List<String> uris,
+                                           Boolean unique, Boolean exact) {
         String startString = start.format(DTF);
         String endString = end.format(DTF);
         return client
@@ -45,10 +138,60 @@ public class StatClient {
                         .queryParam("end", endString)
                         .queryParam("unique", unique)
                         .queryParam("uris", uris)
+                        .queryParamIfPresent("exact", Optional.ofNullable(exact))
                         .build()
                 )
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<>() {
                 });
     }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (batcher != null) {
+            batcher.bindTo(registry);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    private Map<Integer, List<String>> route(List<String> uris) {
+        Map<Integer, List<String>> routed = new LinkedHashMap<>();
+        if (uris == null || uris.isEmpty() || uris.stream().anyMatch(uri -> uri.contains(WILDCARD))) {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                routed.put(shard, uris);
+            }
+            return routed;
+        }
+        for (String uri : uris) {
+            routed.computeIfAbsent(ring.shardOf(uri), shard -> new ArrayList<>()).add(uri);
+        }
+        return routed;
+    }
+
+    private static List<ViewStats> merge(List<List<ViewStats>> results) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        Map<List<String>, ViewStats> merged = new LinkedHashMap<>();
+        for (List<ViewStats> stats : results) {
+            for (ViewStats stat : stats) {
+                merged.merge(List.of(stat.getApp(), stat.getUri()), stat,
+                        (left, right) -> new ViewStats(left.getApp(), left.getUri(), left.getHits() + right.getHits()));
+            }
+        }
+        List<ViewStats> stats = new ArrayList<>(merged.values());
+        stats.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return stats;
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        return !(e instanceof WebClientResponseException)
+                || ((WebClientResponseException) e).getStatusCode().is5xxServerError();
+    }
 }
@@ -0,0 +1,109 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitBatcherTest {
+
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final List<String> sentByCaller = new CopyOnWriteArrayList<>();
+
+    @Test
+    void dropNewestKeepsQueuedHits() throws InterruptedException {
+        HitBatcher batcher = batcher(2, 100, HitBatcher.OverflowPolicy.DROP_NEWEST);
+
+        offer(batcher, "/events/1", "/events/2", "/events/3");
+        assertEquals(2, batcher.getQueued());
+        batcher.close();
+
+        assertEquals(List.of("/events/1", "/events/2"), sent);
+        assertEquals(2, batcher.getSent());
+        assertEquals(1, batcher.getDropped());
+    }
+
+    @Test
+    void dropOldestKeepsNewestHits() throws InterruptedException {
+        HitBatcher batcher = batcher(2, 100, HitBatcher.OverflowPolicy.DROP_OLDEST);
+
+        offer(batcher, "/events/1", "/events/2", "/events/3");
+        batcher.close();
+
+        assertEquals(List.of("/events/2", "/events/3"), sent);
+        assertEquals(1, batcher.getDropped());
+    }
+
+    @Test
+    void callerRunsSendsOverflowWithCallerSender() throws InterruptedException {
+        HitBatcher batcher = batcher(1, 100, HitBatcher.OverflowPolicy.CALLER_RUNS);
+
+        offer(batcher, "/events/1", "/events/2");
+        assertEquals(List.of("/events/2"), sentByCaller);
+        assertTrue(sent.isEmpty());
+        batcher.close();
+
+        assertEquals(List.of("/events/1"), sent);
+        assertEquals(2, batcher.getSent());
+        assertEquals(0, batcher.getDropped());
+    }
+
+    @Test
+    void closeDrainsQueueInBatches() throws InterruptedException {
+        HitBatcher batcher = batcher(100, 2, HitBatcher.OverflowPolicy.DROP_NEWEST);
+
+        offer(batcher, "/events/1", "/events/2", "/events/3", "/events/4", "/events/5");
+        batcher.close();
+
+        assertEquals(5, batcher.getSent());
+        assertEquals(0, batcher.getQueued());
+        assertEquals(List.of("/events/1", "/events/2", "/events/3", "/events/4", "/events/5"), sent);
+    }
+
+    @Test
+    void offerAfterCloseDoesNotFail() throws InterruptedException {
+        HitBatcher batcher = batcher(100, 1, HitBatcher.OverflowPolicy.DROP_NEWEST);
+        batcher.close();
+
+        assertDoesNotThrow(() -> offer(batcher, "/events/1", "/events/2"));
+    }
+
+    @Test
+    void failedSendIsCounted() throws InterruptedException {
+        HitBatcher batcher = new HitBatcher(hits -> Mono.error(new IllegalStateException("unavailable")), 100, 100,
+                NEVER, HitBatcher.OverflowPolicy.DROP_NEWEST);
+
+        offer(batcher, "/events/1", "/events/2");
+        batcher.close();
+
+        assertEquals(0, batcher.getSent());
+        assertEquals(2, batcher.getFailed());
+    }
+
+    private HitBatcher batcher(int capacity, int batchSize, HitBatcher.OverflowPolicy policy) {
+        return new HitBatcher(recording(sent), recording(sentByCaller), capacity, batchSize, NEVER, policy);
+    }
+
+    private static Function<List<EndpointHitDto>, Mono<Void>> recording(List<String> target) {
+        return hits -> Mono.fromRunnable(() -> target.addAll(hits.stream()
+                .map(EndpointHitDto::getUri)
+                .collect(Collectors.toList())));
+    }
+
+    private static void offer(HitBatcher batcher, String... uris) {
+        for (String uri : uris) {
+            batcher.offer(new EndpointHitDto(null, "ewm-main-service", uri, "192.163.0.1", LocalDateTime.now(), null));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void routesEverythingToSingleShard() {
+        ShardRing ring = new ShardRing(List.of("http://stats-1:9090"));
+
+        assertEquals(0, ring.shardOf("/events/1"));
+        assertEquals(1, ring.size());
+    }
+
+    @Test
+    void rejectsEmptyShardList() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of()));
+    }
+
+    @Test
+    void routesSameKeyToSameShard() {
+        ShardRing ring = new ShardRing(shards(3));
+        ShardRing copy = new ShardRing(shards(3));
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.shardOf("/events/" + i), copy.shardOf("/events/" + i));
+        }
+    }
+
+    @Test
+    void spreadsKeysEvenly() {
+        ShardRing ring = new ShardRing(shards(4));
+        int[] counts = new int[4];
+        for (int i = 0; i < KEYS; i++) {
+            counts[ring.shardOf("/events/" + i)]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2, () -> "неравномерное распределение " + count);
+        }
+    }
+
+    @Test
+    void addingShardRemapsAboutOneNth() {
+        ShardRing before = new ShardRing(shards(4));
+        ShardRing after = new ShardRing(shards(5));
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "/events/" + i;
+            int shard = after.shardOf(key);
+            if (shard != before.shardOf(key)) {
+                assertEquals(4, shard);
+                moved++;
+            }
+        }
+
+        double share = (double) moved / KEYS;
+        assertTrue(share > 0.2 * 0.7 && share < 0.2 * 1.3, () -> "перемещено " + share);
+    }
+
+    private static List<String> shards(int count) {
+        String[] urls = new String[count];
+        for (int i = 0; i < count; i++) {
+            urls[i] = "http://stats-" + (i + 1) + ":9090";
+        }
+        return List.of(urls);
+    }
+}
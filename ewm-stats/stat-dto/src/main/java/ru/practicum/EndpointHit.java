@@ -22,13 +22,15 @@ public class EndpointHit {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "hit_id")
     Long id;
+    @Column(name = "app_id", nullable = false)
+    Integer appId;
+    @Column(name = "uri_id", nullable = false)
+    Integer uriId;
     @Column(nullable = false)
-    String app;
-    @Column(nullable = false)
-    String uri;
-    @Column(nullable = false)
-    String ip;
+    byte[] ip;
     @Column(name = "hit_timestamp", nullable = false)
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     LocalDateTime timestamp;
-}
\ No newline at end of file
+    @Column(name = "dedup_key", length = 128)
+    String dedupKey;
+}
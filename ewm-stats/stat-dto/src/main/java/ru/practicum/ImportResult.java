@@ -0,0 +1,14 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResult {
+    private Long imported;
+    private Long skipped;
+    private Long offset;
+}
@@ -0,0 +1,160 @@
+package ru.practicum.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.HeavyHitter;
+import ru.practicum.ImportResult;
+import ru.practicum.TimeSeries;
+import ru.practicum.ViewStats;
+import ru.practicum.exception.BadRequestException;
+import ru.practicum.service.HeavyHitters;
+import ru.practicum.service.HitImporter;
+import ru.practicum.service.StatService;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@RestController
+@Validated
+@ConditionalOnProperty(name = "spring.main.web-application-type", havingValue = "reactive")
+@RequiredArgsConstructor
+public class ReactiveStatController {
+    private final StatService statService;
+    private final Optional<HeavyHitters> heavyHitters;
+    private final HitImporter hitImporter;
+    private final Scheduler blockingScheduler;
+
+    @PostMapping("/hit")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<EndpointHitDto> create(@Valid @RequestBody EndpointHitDto endpointHitDto) {
+        log.debug("Сохранение информации о запросе {} {}", endpointHitDto.getApp(), endpointHitDto.getUri());
+        return Mono.fromCallable(() -> {
+            EndpointHitDto saved = statService.saveStat(endpointHitDto);
+            heavyHitters.ifPresent(tracker -> tracker.record(endpointHitDto));
+            return saved;
+        }).subscribeOn(blockingScheduler);
+    }
+
+    @PostMapping("/hits/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Void> createBatch(@RequestBody List<@Valid EndpointHitDto> endpointHitDtos) {
+        log.info("Пакетное сохранение информации о {} запросах", endpointHitDtos.size());
+        return Mono.fromRunnable(() -> {
+            statService.saveStats(endpointHitDtos);
+            heavyHitters.ifPresent(tracker -> tracker.record(endpointHitDtos));
+        }).subscribeOn(blockingScheduler).then();
+    }
+
+    @PostMapping(value = "/hits/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, HitImporter.TEXT_CSV_VALUE})
+    public Mono<ImportResult> importHits(@RequestParam(defaultValue = "0") @Min(0) Long offset,
+                                         ServerHttpRequest request) {
+        HitImporter.Session session = hitImporter.open(
+                HitImporter.Format.of(request.getHeaders().getContentType()), offset);
+        return StringDecoder.allMimeTypes()
+                .decode(request.getBody(), ResolvableType.forClass(String.class), null, null)
+                .publishOn(blockingScheduler)
+                .doOnNext(session::accept)
+                .doOnError(session::abort)
+                .then(Mono.fromCallable(session::finish));
+    }
+
+    @GetMapping("/stats")
+    public Mono<List<ViewStats>> getStats(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "true") Boolean exact) {
+        if (end.isBefore(start)) {
+            throw new BadRequestException("Параметры запроса дат не верны");
+        }
+        return Mono.fromCallable(() -> statService.getStats(start, end, uris, unique, exact))
+                .subscribeOn(blockingScheduler);
+    }
+
+    @GetMapping("/stats/top")
+    public Mono<List<ViewStats>> getTop(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(1000) Integer limit,
+            @RequestParam(required = false) String app,
+            @RequestParam(required = false) String uriPrefix,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "true") Boolean exact) {
+        if (end.isBefore(start)) {
+            throw new BadRequestException("Параметры запроса дат не верны");
+        }
+        return Mono.fromCallable(() -> statService.getTop(start, end, limit, app, uriPrefix, unique, exact))
+                .subscribeOn(blockingScheduler);
+    }
+
+    @GetMapping("/stats/hot/uris")
+    public List<HeavyHitter> getHotUris(@RequestParam(defaultValue = "10") @Min(1) @Max(1000) Integer limit) {
+        return heavyHitters.map(tracker -> tracker.getUris(limit)).orElseGet(List::of);
+    }
+
+    @GetMapping("/stats/hot/ips")
+    public List<HeavyHitter> getHotIps(@RequestParam(defaultValue = "10") @Min(1) @Max(1000) Integer limit) {
+        return heavyHitters.map(tracker -> tracker.getIps(limit)).orElseGet(List::of);
+    }
+
+    @GetMapping("/stats/timeseries")
+    public Mono<List<TimeSeries>> getTimeSeries(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam List<String> uri,
+            @RequestParam(defaultValue = "1h") String step) {
+        if (end.isBefore(start)) {
+            throw new BadRequestException("Параметры запроса дат не верны");
+        }
+        Duration stepDuration;
+        try {
+            stepDuration = DurationStyle.detectAndParse(step);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Некорректный шаг: " + step);
+        }
+        return Mono.fromCallable(() -> statService.getTimeSeries(start, end, uri, stepDuration))
+                .subscribeOn(blockingScheduler);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ViewStats> streamStats(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "true") Boolean exact) {
+        if (end.isBefore(start)) {
+            throw new BadRequestException("Параметры запроса дат не верны");
+        }
+        return Flux.<ViewStats>create(sink -> {
+            statService.streamStats(start, end, uris, unique, exact, sink::next);
+            sink.complete();
+        }).subscribeOn(blockingScheduler);
+    }
+}
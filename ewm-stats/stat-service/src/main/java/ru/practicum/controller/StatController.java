@@ -1,45 +1,163 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.EndpointHitDto;
+import ru.practicum.HeavyHitter;
+import ru.practicum.ImportResult;
+import ru.practicum.TimeSeries;
 import ru.practicum.ViewStats;
 import ru.practicum.exception.BadRequestException;
+import ru.practicum.service.HeavyHitters;
+import ru.practicum.service.HitImporter;
 import ru.practicum.service.StatService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @RestController
+@Validated
+@ConditionalOnExpression("'${spring.main.web-application-type:servlet}' != 'reactive'")
 @RequiredArgsConstructor
 public class StatController {
     private final StatService statService;
+    private final ObjectMapper objectMapper;
+    private final Optional<HeavyHitters> heavyHitters;
+    private final HitImporter hitImporter;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
     public EndpointHitDto create(@Valid @RequestBody EndpointHitDto endpointHitDto) {
-        log.info("Сохранение информации о запросе {}", endpointHitDto.toString());
-        return statService.saveStat(endpointHitDto);
+        log.debug("Сохранение информации о запросе {} {}", endpointHitDto.getApp(), endpointHitDto.getUri());
+        EndpointHitDto saved = statService.saveStat(endpointHitDto);
+        heavyHitters.ifPresent(tracker -> tracker.record(endpointHitDto));
+        return saved;
+    }
+
+    @PostMapping("/hits/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void createBatch(@RequestBody List<@Valid EndpointHitDto> endpointHitDtos) {
+        log.info("Пакетное сохранение информации о {} запросах", endpointHitDtos.size());
+        statService.saveStats(endpointHitDtos);
+        heavyHitters.ifPresent(tracker -> tracker.record(endpointHitDtos));
+    }
+
+    @PostMapping(value = "/hits/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, HitImporter.TEXT_CSV_VALUE})
+    public ImportResult importHits(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                   @RequestParam(defaultValue = "0") @Min(0) Long offset,
+                                   InputStream body) throws IOException {
+        return hitImporter.importHits(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)),
+                HitImporter.Format.of(MediaType.parseMediaType(contentType)), offset);
     }
 
     @GetMapping("/stats")
     public List<ViewStats> getStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                     @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                     @RequestParam(required = false) List<String> uris,
-                                    @RequestParam(defaultValue = "false") Boolean unique) {
+                                    @RequestParam(defaultValue = "false") Boolean unique,
+                                    @RequestParam(defaultValue = "true") Boolean exact) {
+        if (end.isBefore(start)) {
+            throw new BadRequestException("Параметры запроса дат не верны");
+        }
+        return statService.getStats(start, end, uris, unique, exact);
+    }
+
+    @GetMapping("/stats/top")
+    public List<ViewStats> getTop(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                  @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                  @RequestParam(defaultValue = "10") @Min(1) @Max(1000) Integer limit,
+                                  @RequestParam(required = false) String app,
+                                  @RequestParam(required = false) String uriPrefix,
+                                  @RequestParam(defaultValue = "false") Boolean unique,
+                                  @RequestParam(defaultValue = "true") Boolean exact) {
+        if (end.isBefore(start)) {
+            throw new BadRequestException("Параметры запроса дат не верны");
+        }
+        return statService.getTop(start, end, limit, app, uriPrefix, unique, exact);
+    }
+
+    @GetMapping("/stats/hot/uris")
+    public List<HeavyHitter> getHotUris(@RequestParam(defaultValue = "10") @Min(1) @Max(1000) Integer limit) {
+        return heavyHitters.map(tracker -> tracker.getUris(limit)).orElseGet(List::of);
+    }
+
+    @GetMapping("/stats/hot/ips")
+    public List<HeavyHitter> getHotIps(@RequestParam(defaultValue = "10") @Min(1) @Max(1000) Integer limit) {
+        return heavyHitters.map(tracker -> tracker.getIps(limit)).orElseGet(List::of);
+    }
+
+    @GetMapping("/stats/timeseries")
+    public List<TimeSeries> getTimeSeries(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam List<String> uri,
+            @RequestParam(defaultValue = "1h") String step) {
+        if (end.isBefore(start)) {
+            throw new BadRequestException("Параметры запроса дат не верны");
+        }
+        Duration stepDuration;
+        try {
+            stepDuration = DurationStyle.detectAndParse(step);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Некорректный шаг: " + step);
+        }
+        return statService.getTimeSeries(start, end, uri, stepDuration);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStats(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "true") Boolean exact) {
         if (end.isBefore(start)) {
             throw new BadRequestException("Параметры запроса дат не верны");
         }
-        return statService.getStats(start, end, uris, unique);
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null);
+            statService.streamStats(start, end, uris, unique, exact, stat -> {
+                try {
+                    generator.writeObject(stat);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.close();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
-}
\ No newline at end of file
+}
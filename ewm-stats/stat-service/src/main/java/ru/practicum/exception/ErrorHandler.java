@@ -6,11 +6,13 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import javax.validation.ConstraintViolationException;
+
 @Slf4j
 @RestControllerAdvice
 public class ErrorHandler {
 
-    @ExceptionHandler({BadRequestException.class})
+    @ExceptionHandler({BadRequestException.class, ConstraintViolationException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidateException(final Exception e) {
         log.warn("Ошибка запроса: {}", e.getMessage(), e);
@@ -18,4 +20,13 @@ public class ErrorHandler {
                 "Ошибка запроса: " + e.getMessage()
         );
     }
+
+    @ExceptionHandler({IngestOverloadException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleOverloadException(final Exception e) {
+        log.warn("Сервис перегружен: {}", e.getMessage());
+        return new ErrorResponse(
+                "Сервис перегружен: " + e.getMessage()
+        );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package ru.practicum.hitlog;
+
+import ru.practicum.sketch.HyperLogLog;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+class HitCounters {
+    private static final long MINUTE = 60;
+    private static final long HOUR = 3600;
+    private static final long DAY = 86400;
+
+    private final Map<Long, Series> series = new HashMap<>();
+
+    static long key(int appId, int uriId) {
+        return ((long) appId << 32) | (uriId & 0xffffffffL);
+    }
+
+    static int appId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int uriId(long key) {
+        return (int) key;
+    }
+
+    void add(int appId, int uriId, long timestamp) {
+        Series counts = series.computeIfAbsent(key(appId, uriId), key -> new Series());
+        counts.minutes.computeIfAbsent(Math.floorDiv(timestamp, MINUTE) * MINUTE, bucket -> new long[1])[0]++;
+        counts.hours.computeIfAbsent(Math.floorDiv(timestamp, HOUR) * HOUR, bucket -> new long[1])[0]++;
+    }
+
+    static long day(long timestamp) {
+        return Math.floorDiv(timestamp, DAY) * DAY;
+    }
+
+    void addVisitors(long key, long day, HyperLogLog sketch) {
+        Series counts = series.computeIfAbsent(key, k -> new Series());
+        byte[] stored = counts.days.get(day);
+        counts.days.put(day, (stored != null ? HyperLogLog.fromBytes(stored).merge(sketch) : sketch).toBytes());
+    }
+
+    void mergeVisitors(long from, long to, Set<Integer> uriIds, Map<Long, HyperLogLog> sketches,
+                       Function<Long, HyperLogLog> factory) {
+        series.forEach((key, counts) -> {
+            if (from >= to || (uriIds != null && !uriIds.contains(uriId(key)))) {
+                return;
+            }
+            for (byte[] stored : counts.days.subMap(from, true, to, false).values()) {
+                sketches.computeIfAbsent(key, factory).merge(HyperLogLog.fromBytes(stored));
+            }
+        });
+    }
+
+    void foldMinutes(long before) {
+        series.values().forEach(counts -> counts.minutes.headMap(before, false).clear());
+    }
+
+    void sumMinutes(long from, long to, Set<Integer> uriIds, Map<Long, Long> hits) {
+        series.forEach((key, counts) -> sum(key, counts.minutes, from, to, uriIds, hits));
+    }
+
+    void sumHours(long from, long to, Set<Integer> uriIds, Map<Long, Long> hits) {
+        series.forEach((key, counts) -> sum(key, counts.hours, from, to, uriIds, hits));
+    }
+
+    void forEachMinute(long from, long to, Set<Integer> uriIds, BucketVisitor visitor) {
+        series.forEach((key, counts) -> forEach(key, counts.minutes, from, to, uriIds, visitor));
+    }
+
+    void forEachHour(long from, long to, Set<Integer> uriIds, BucketVisitor visitor) {
+        series.forEach((key, counts) -> forEach(key, counts.hours, from, to, uriIds, visitor));
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(series.size());
+        for (Map.Entry<Long, Series> entry : series.entrySet()) {
+            out.writeLong(entry.getKey());
+            writeBuckets(out, entry.getValue().minutes);
+            writeBuckets(out, entry.getValue().hours);
+            writeSketches(out, entry.getValue().days);
+        }
+    }
+
+    void read(DataInput in, boolean withVisitors) throws IOException {
+        series.clear();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            Series counts = new Series();
+            series.put(in.readLong(), counts);
+            readBuckets(in, counts.minutes);
+            readBuckets(in, counts.hours);
+            if (withVisitors) {
+                readSketches(in, counts.days);
+            }
+        }
+    }
+
+    private static void sum(long key, NavigableMap<Long, long[]> buckets, long from, long to, Set<Integer> uriIds,
+                            Map<Long, Long> hits) {
+        if (from >= to || (uriIds != null && !uriIds.contains(uriId(key)))) {
+            return;
+        }
+        long total = 0;
+        for (long[] count : buckets.subMap(from, true, to, false).values()) {
+            total += count[0];
+        }
+        if (total > 0) {
+            hits.merge(key, total, Long::sum);
+        }
+    }
+
+    private static void forEach(long key, NavigableMap<Long, long[]> buckets, long from, long to,
+                                Set<Integer> uriIds, BucketVisitor visitor) {
+        if (from >= to || (uriIds != null && !uriIds.contains(uriId(key)))) {
+            return;
+        }
+        buckets.subMap(from, true, to, false).forEach((bucket, count) -> visitor.visit(key, bucket, count[0]));
+    }
+
+    private static void writeBuckets(DataOutput out, NavigableMap<Long, long[]> buckets) throws IOException {
+        out.writeInt(buckets.size());
+        for (Map.Entry<Long, long[]> bucket : buckets.entrySet()) {
+            out.writeLong(bucket.getKey());
+            out.writeLong(bucket.getValue()[0]);
+        }
+    }
+
+    private static void readBuckets(DataInput in, NavigableMap<Long, long[]> buckets) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            buckets.put(in.readLong(), new long[]{in.readLong()});
+        }
+    }
+
+    private static void writeSketches(DataOutput out, NavigableMap<Long, byte[]> sketches) throws IOException {
+        out.writeInt(sketches.size());
+        for (Map.Entry<Long, byte[]> sketch : sketches.entrySet()) {
+            out.writeLong(sketch.getKey());
+            out.writeInt(sketch.getValue().length);
+            out.write(sketch.getValue());
+        }
+    }
+
+    private static void readSketches(DataInput in, NavigableMap<Long, byte[]> sketches) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            long day = in.readLong();
+            byte[] sketch = new byte[in.readInt()];
+            in.readFully(sketch);
+            sketches.put(day, sketch);
+        }
+    }
+
+    private static class Series {
+        private final NavigableMap<Long, long[]> minutes = new TreeMap<>();
+        private final NavigableMap<Long, long[]> hours = new TreeMap<>();
+        private final NavigableMap<Long, byte[]> days = new TreeMap<>();
+    }
+
+    interface BucketVisitor {
+        void visit(long key, long bucket, long hits);
+    }
+}
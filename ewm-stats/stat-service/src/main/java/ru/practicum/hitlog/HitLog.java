@@ -0,0 +1,454 @@
+package ru.practicum.hitlog;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.TimeSeries;
+import ru.practicum.ViewStats;
+import ru.practicum.service.RollupPlan;
+import ru.practicum.service.TimeSeriesPlan;
+import ru.practicum.sketch.Hashing;
+import ru.practicum.sketch.HyperLogLog;
+import ru.practicum.utils.IpAddresses;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "hitlog")
+public class HitLog {
+    private static final int SNAPSHOT_MAGIC = 0x484c4331;
+    private static final int SNAPSHOT_MAGIC_V2 = 0x484c4332;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int rawRetentionDays;
+    private final int minuteRetentionDays;
+    private final int precision;
+    private final HitCounters counters = new HitCounters();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private HitLogDictionary dictionary;
+    private volatile Segment current;
+    private volatile LocalDateTime rawHorizon = LocalDateTime.MIN;
+    private volatile LocalDateTime minuteHorizon = LocalDateTime.MIN;
+
+    public HitLog(@Value("${stats.hitlog.directory:data/hitlog}") String directory,
+                  @Value("${stats.hitlog.segment-size-mb:64}") int segmentSizeMb,
+                  @Value("${stats.compaction.raw-retention-days:0}") int rawRetentionDays,
+                  @Value("${stats.compaction.minute-retention-days:0}") int minuteRetentionDays,
+                  @Value("${stats.hll.relative-error:0.01}") double relativeError) {
+        if (minuteRetentionDays > 0 && (rawRetentionDays <= 0 || rawRetentionDays > minuteRetentionDays)) {
+            throw new IllegalArgumentException("Срок хранения детальных данных не может превышать срок хранения " +
+                    "более грубых агрегатов");
+        }
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024 / Segment.RECORD_SIZE * Segment.RECORD_SIZE;
+        this.rawRetentionDays = rawRetentionDays;
+        this.minuteRetentionDays = minuteRetentionDays;
+        this.precision = HyperLogLog.precisionFor(relativeError);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            dictionary = HitLogDictionary.open(directory.resolve("dictionary.log"));
+            long[] covered = readSnapshot();
+            long records = 0;
+            for (long index : segmentIndexes()) {
+                Segment segment = Segment.open(segmentPath(index), index, segmentSize);
+                long skip = index < covered[0] ? Long.MAX_VALUE : index == covered[0] ? covered[1] : 0;
+                long[] seen = {0};
+                records += segment.recover((timestamp, appId, uriId, ipHigh, ipLow) -> {
+                    if (seen[0]++ >= skip) {
+                        counters.add(appId, uriId, timestamp);
+                    }
+                });
+                segments.add(segment);
+            }
+            if (segments.isEmpty()) {
+                segments.add(Segment.open(segmentPath(0), 0, segmentSize));
+            }
+            current = segments.get(segments.size() - 1);
+            log.info("Журнал просмотров {} восстановлен: сегментов {}, записей {}", directory, segments.size(), records);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long append(EndpointHitDto hit) {
+        lock.lock();
+        try {
+            try {
+                return write(hit);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void append(List<EndpointHitDto> hits) {
+        lock.lock();
+        try {
+            try {
+                for (EndpointHitDto hit : hits) {
+                    write(hit);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void getStats(LocalDateTime start, LocalDateTime end, Collection<String> uris, boolean unique,
+                         boolean exact, Consumer<ViewStats> consumer) {
+        Set<Integer> uriIds = null;
+        if (uris != null && !uris.isEmpty()) {
+            uriIds = dictionary.findUriIds(uris);
+            if (uriIds.isEmpty()) {
+                return;
+            }
+        }
+        getStats(start, end, uriIds, unique, exact, consumer);
+    }
+
+    public void getStatsByPrefix(LocalDateTime start, LocalDateTime end, String uriPrefix, boolean unique,
+                                 boolean exact, Consumer<ViewStats> consumer) {
+        Set<Integer> uriIds = dictionary.findUriIdsByPrefix(uriPrefix);
+        if (!uriIds.isEmpty()) {
+            getStats(start, end, uriIds, unique, exact, consumer);
+        }
+    }
+
+    public List<TimeSeries> getTimeSeries(LocalDateTime start, LocalDateTime end, Collection<String> uris,
+                                          TimeSeriesPlan series) {
+        Set<Integer> uriIds = dictionary.findUriIds(uris);
+        List<TimeSeries> result = new ArrayList<>();
+        if (uriIds.isEmpty()) {
+            return result;
+        }
+        boolean hourly = series.getStep() % 3600 == 0 || start.isBefore(minuteHorizon);
+        RollupPlan plan = RollupPlan.of(start, end, ChronoUnit.MINUTES, hourly ? ChronoUnit.HOURS : ChronoUnit.MINUTES,
+                rawHorizon, minuteHorizon);
+        Map<Long, long[]> counts = new HashMap<>();
+        HitCounters.BucketVisitor collector = (key, bucket, hits) -> {
+            int slot = series.slot(bucket);
+            if (slot >= 0 && slot < series.getPoints()) {
+                counts.computeIfAbsent(key, k -> new long[series.getPoints()])[slot] += hits;
+            }
+        };
+        Segment.RecordVisitor raw = (timestamp, appId, uriId, ipHigh, ipLow) -> {
+            if (uriIds.contains(uriId)) {
+                collector.visit(HitCounters.key(appId, uriId), timestamp, 1);
+            }
+        };
+        scan(epochSecond(plan.getStart()), epochSecond(plan.getFineStart()) - 1, raw);
+        scan(epochSecond(plan.getFineEnd()), epochSecond(plan.getEnd()), raw);
+        lock.lock();
+        try {
+            counters.forEachMinute(epochSecond(plan.getFineStart()), epochSecond(plan.getCoarseStart()), uriIds,
+                    collector);
+            if (hourly) {
+                counters.forEachHour(epochSecond(plan.getCoarseStart()), epochSecond(plan.getCoarseEnd()), uriIds,
+                        collector);
+            } else {
+                counters.forEachMinute(epochSecond(plan.getCoarseStart()), epochSecond(plan.getCoarseEnd()), uriIds,
+                        collector);
+            }
+            counters.forEachMinute(epochSecond(plan.getCoarseEnd()), epochSecond(plan.getFineEnd()), uriIds,
+                    collector);
+        } finally {
+            lock.unlock();
+        }
+        counts.forEach((key, values) -> result.add(new TimeSeries(dictionary.appName(HitCounters.appId(key)),
+                dictionary.uriName(HitCounters.uriId(key)), series.getOrigin(), series.getStep(), values)));
+        return result;
+    }
+
+    private void getStats(LocalDateTime start, LocalDateTime end, Set<Integer> uriIds, boolean unique,
+                          boolean exact, Consumer<ViewStats> consumer) {
+        Map<Long, Long> hits = unique ? countUnique(start, end, uriIds, exact) : count(start, end, uriIds);
+        hits.forEach((key, value) -> consumer.accept(new ViewStats(dictionary.appName(HitCounters.appId(key)),
+                dictionary.uriName(HitCounters.uriId(key)), value)));
+    }
+
+    @Scheduled(fixedDelayString = "${stats.hitlog.force-interval-ms:1000}")
+    public void force() {
+        current.force();
+    }
+
+    @Scheduled(cron = "${stats.compaction.cron:0 15 * * * *}")
+    public void compact() throws IOException {
+        if (rawRetentionDays <= 0 && minuteRetentionDays <= 0) {
+            return;
+        }
+        LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        List<Segment> retired = new ArrayList<>();
+        lock.lock();
+        try {
+            if (rawRetentionDays > 0) {
+                retired = retireSegments(today.minusDays(rawRetentionDays));
+            }
+            if (minuteRetentionDays > 0 && today.minusDays(minuteRetentionDays).isAfter(minuteHorizon)) {
+                minuteHorizon = today.minusDays(minuteRetentionDays);
+                counters.foldMinutes(epochSecond(minuteHorizon));
+            }
+            current.force();
+            writeSnapshot(current.getIndex(), current.getCount());
+            segments.removeAll(retired);
+        } finally {
+            lock.unlock();
+        }
+        for (Segment segment : retired) {
+            segment.delete();
+            log.info("Журнал просмотров: удалён сегмент {}", segment.getIndex());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+            dictionary.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long write(EndpointHitDto hit) throws IOException {
+        int appId = dictionary.appId(hit.getApp());
+        int uriId = dictionary.uriId(hit.getUri());
+        long timestamp = epochSecond(hit.getTimestamp());
+        byte[] ip = toIp(hit.getIp());
+        if (!current.append(timestamp, appId, uriId, ip)) {
+            rollover();
+            current.append(timestamp, appId, uriId, ip);
+        }
+        counters.add(appId, uriId, timestamp);
+        return current.getIndex() * current.getCapacity() + current.getCount();
+    }
+
+    private void rollover() throws IOException {
+        current.force();
+        long index = current.getIndex() + 1;
+        Segment segment = Segment.open(segmentPath(index), index, segmentSize);
+        segments.add(segment);
+        current = segment;
+        writeSnapshot(index, 0);
+        log.info("Журнал просмотров: открыт сегмент {}", index);
+    }
+
+    private List<Segment> retireSegments(LocalDateTime horizon) {
+        long cutoff = epochSecond(horizon);
+        Map<Long, Map<Long, HyperLogLog>> visitors = new HashMap<>();
+        List<Segment> retired = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment == current || segment.getMaxTimestamp() >= cutoff) {
+                continue;
+            }
+            segment.forEach(Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, appId, uriId, ipHigh, ipLow) ->
+                    visitors.computeIfAbsent(HitCounters.key(appId, uriId), key -> new HashMap<>())
+                            .computeIfAbsent(HitCounters.day(timestamp), day -> new HyperLogLog(precision))
+                            .offerHash(ipHash(ipHigh, ipLow)));
+            retired.add(segment);
+        }
+        visitors.forEach((key, days) -> days.forEach((day, sketch) -> counters.addVisitors(key, day, sketch)));
+        if (horizon.isAfter(rawHorizon)) {
+            rawHorizon = horizon;
+        }
+        return retired;
+    }
+
+    private Map<Long, Long> count(LocalDateTime start, LocalDateTime end, Set<Integer> uriIds) {
+        RollupPlan plan = RollupPlan.of(start, end, ChronoUnit.MINUTES, ChronoUnit.HOURS, rawHorizon, minuteHorizon);
+        Map<Long, Long> hits = new HashMap<>();
+        Segment.RecordVisitor counter = (timestamp, appId, uriId, ipHigh, ipLow) -> {
+            if (uriIds == null || uriIds.contains(uriId)) {
+                hits.merge(HitCounters.key(appId, uriId), 1L, Long::sum);
+            }
+        };
+        scan(epochSecond(plan.getStart()), epochSecond(plan.getFineStart()) - 1, counter);
+        scan(epochSecond(plan.getFineEnd()), epochSecond(plan.getEnd()), counter);
+        lock.lock();
+        try {
+            counters.sumMinutes(epochSecond(plan.getFineStart()), epochSecond(plan.getCoarseStart()), uriIds, hits);
+            counters.sumHours(epochSecond(plan.getCoarseStart()), epochSecond(plan.getCoarseEnd()), uriIds, hits);
+            counters.sumMinutes(epochSecond(plan.getCoarseEnd()), epochSecond(plan.getFineEnd()), uriIds, hits);
+        } finally {
+            lock.unlock();
+        }
+        return hits;
+    }
+
+    private Map<Long, Long> countUnique(LocalDateTime start, LocalDateTime end, Set<Integer> uriIds,
+                                        boolean exact) {
+        LocalDateTime horizon = rawHorizon;
+        if (!exact || start.isBefore(horizon)) {
+            return estimateUnique(start, end, uriIds, horizon);
+        }
+        Map<Long, Set<IpKey>> visitors = new HashMap<>();
+        scan(epochSecond(start), epochSecond(end), (timestamp, appId, uriId, ipHigh, ipLow) -> {
+            if (uriIds == null || uriIds.contains(uriId)) {
+                visitors.computeIfAbsent(HitCounters.key(appId, uriId), key -> new HashSet<>())
+                        .add(new IpKey(ipHigh, ipLow));
+            }
+        });
+        Map<Long, Long> hits = new HashMap<>();
+        visitors.forEach((key, ips) -> hits.put(key, (long) ips.size()));
+        return hits;
+    }
+
+    private Map<Long, Long> estimateUnique(LocalDateTime start, LocalDateTime end, Set<Integer> uriIds,
+                                           LocalDateTime horizon) {
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+        lock.lock();
+        try {
+            counters.mergeVisitors(HitCounters.day(epochSecond(start)),
+                    Math.min(epochSecond(end) + 1, epochSecond(horizon)), uriIds, sketches,
+                    key -> new HyperLogLog(precision));
+        } finally {
+            lock.unlock();
+        }
+        scan(epochSecond(start), epochSecond(end), (timestamp, appId, uriId, ipHigh, ipLow) -> {
+            if (uriIds == null || uriIds.contains(uriId)) {
+                sketches.computeIfAbsent(HitCounters.key(appId, uriId), key -> new HyperLogLog(precision))
+                        .offerHash(ipHash(ipHigh, ipLow));
+            }
+        });
+        Map<Long, Long> hits = new HashMap<>();
+        sketches.forEach((key, sketch) -> hits.put(key, sketch.cardinality()));
+        return hits;
+    }
+
+    private void scan(long from, long to, Segment.RecordVisitor visitor) {
+        if (from > to) {
+            return;
+        }
+        for (Segment segment : segments) {
+            segment.forEach(from, to, visitor);
+        }
+    }
+
+    private long[] readSnapshot() throws IOException {
+        Path snapshot = directory.resolve("counters.snapshot");
+        if (!Files.exists(snapshot)) {
+            return new long[]{0, 0};
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            int magic = in.readInt();
+            if (magic == SNAPSHOT_MAGIC) {
+                long covered = in.readLong();
+                counters.read(in, false);
+                return new long[]{covered, 0};
+            }
+            if (magic != SNAPSHOT_MAGIC_V2) {
+                throw new IOException("Неизвестный формат снимка счётчиков " + snapshot);
+            }
+            long[] covered = {in.readLong(), in.readInt()};
+            rawHorizon = toTime(in.readLong());
+            minuteHorizon = toTime(in.readLong());
+            counters.read(in, true);
+            return covered;
+        }
+    }
+
+    private void writeSnapshot(long covered, int coveredRecords) throws IOException {
+        Path snapshot = directory.resolve("counters.snapshot");
+        Path temporary = directory.resolve("counters.snapshot.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(SNAPSHOT_MAGIC_V2);
+            out.writeLong(covered);
+            out.writeInt(coveredRecords);
+            out.writeLong(rawHorizon.equals(LocalDateTime.MIN) ? Long.MIN_VALUE : epochSecond(rawHorizon));
+            out.writeLong(minuteHorizon.equals(LocalDateTime.MIN) ? Long.MIN_VALUE : epochSecond(minuteHorizon));
+            counters.write(out);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<Long> segmentIndexes() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toTime(long epochSecond) {
+        return epochSecond == Long.MIN_VALUE ? LocalDateTime.MIN
+                : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private static long ipHash(long high, long low) {
+        return Hashing.mix(high ^ Hashing.mix(low));
+    }
+
+    private static byte[] toIp(String ip) {
+        byte[] bytes = IpAddresses.toBytes(ip);
+        if (bytes.length == IpAddresses.LENGTH) {
+            return bytes;
+        }
+        return ByteBuffer.allocate(IpAddresses.LENGTH).putLong(-1L).putLong(Hashing.hash64(bytes)).array();
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class IpKey {
+        private final long high;
+        private final long low;
+    }
+}
@@ -0,0 +1,149 @@
+package ru.practicum.hitlog;
+
+import ru.practicum.utils.UriIndex;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+class HitLogDictionary implements Closeable {
+    private static final byte APP = 0;
+    private static final byte URI = 1;
+
+    private final RandomAccessFile file;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Entries apps = new Entries();
+    private final Entries uris = new Entries();
+
+    private HitLogDictionary(RandomAccessFile file) {
+        this.file = file;
+    }
+
+    static HitLogDictionary open(Path path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+        HitLogDictionary dictionary = new HitLogDictionary(file);
+        long valid = 0;
+        try {
+            while (file.getFilePointer() < file.length()) {
+                byte kind = file.readByte();
+                String name = file.readUTF();
+                (kind == APP ? dictionary.apps : dictionary.uris).add(name);
+                valid = file.getFilePointer();
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            file.setLength(valid);
+        }
+        file.seek(valid);
+        return dictionary;
+    }
+
+    int appId(String name) throws IOException {
+        lock.lock();
+        try {
+            return id(apps, APP, name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int uriId(String name) throws IOException {
+        lock.lock();
+        try {
+            return id(uris, URI, name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Set<Integer> findUriIds(Collection<String> names) {
+        lock.lock();
+        try {
+            Set<Integer> ids = new HashSet<>();
+            for (String name : names) {
+                if (UriIndex.isPattern(name)) {
+                    ids.addAll(uris.index.findByPattern(name));
+                    continue;
+                }
+                Integer id = uris.ids.get(name);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Set<Integer> findUriIdsByPrefix(String prefix) {
+        lock.lock();
+        try {
+            return new HashSet<>(uris.index.findByPrefix(prefix));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String appName(int id) {
+        lock.lock();
+        try {
+            return apps.names.get(id - 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String uriName(int id) {
+        lock.lock();
+        try {
+            return uris.names.get(id - 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            file.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int id(Entries entries, byte kind, String name) throws IOException {
+        Integer id = entries.ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        file.writeByte(kind);
+        file.writeUTF(name);
+        file.getFD().sync();
+        return entries.add(name);
+    }
+
+    private static class Entries {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final UriIndex index = new UriIndex();
+
+        int add(String name) {
+            names.add(name);
+            ids.put(name, names.size());
+            index.put(name, names.size());
+            return names.size();
+        }
+    }
+}
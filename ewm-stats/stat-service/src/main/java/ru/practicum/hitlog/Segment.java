@@ -0,0 +1,136 @@
+package ru.practicum.hitlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+class Segment {
+    static final int RECORD_SIZE = 36;
+
+    private final Path file;
+    private final long index;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final CRC32 crc = new CRC32();
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+    private volatile int count;
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+
+    private Segment(Path file, long index, FileChannel channel, int size) throws IOException {
+        this.file = file;
+        this.index = index;
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.capacity = size / RECORD_SIZE;
+    }
+
+    static Segment open(Path file, long index, int size) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        int mappedSize = channel.size() > 0 ? (int) channel.size() : size;
+        return new Segment(file, index, channel, mappedSize);
+    }
+
+    int recover(RecordVisitor visitor) {
+        ByteBuffer view = buffer.duplicate();
+        int recovered = 0;
+        while (recovered < capacity) {
+            int position = recovered * RECORD_SIZE;
+            view.limit(position + RECORD_SIZE).position(position + 4);
+            crc.reset();
+            crc.update(view);
+            if (buffer.getInt(position) != (int) crc.getValue()) {
+                break;
+            }
+            long timestamp = buffer.getLong(position + 4);
+            track(timestamp);
+            visitor.visit(timestamp, buffer.getInt(position + 12), buffer.getInt(position + 16),
+                    buffer.getLong(position + 20), buffer.getLong(position + 28));
+            recovered++;
+        }
+        count = recovered;
+        return recovered;
+    }
+
+    boolean append(long timestamp, int appId, int uriId, byte[] ip) {
+        if (count == capacity) {
+            return false;
+        }
+        recordBuffer.clear();
+        recordBuffer.putInt(0).putLong(timestamp).putInt(appId).putInt(uriId).put(ip);
+        crc.reset();
+        crc.update(record, 4, RECORD_SIZE - 4);
+        recordBuffer.putInt(0, (int) crc.getValue());
+        buffer.position(count * RECORD_SIZE);
+        buffer.put(record);
+        track(timestamp);
+        count++;
+        return true;
+    }
+
+    void forEach(long from, long to, RecordVisitor visitor) {
+        if (maxTimestamp < from || minTimestamp > to) {
+            return;
+        }
+        int total = count;
+        for (int i = 0; i < total; i++) {
+            int position = i * RECORD_SIZE;
+            long timestamp = buffer.getLong(position + 4);
+            if (timestamp >= from && timestamp <= to) {
+                visitor.visit(timestamp, buffer.getInt(position + 12), buffer.getInt(position + 16),
+                        buffer.getLong(position + 20), buffer.getLong(position + 28));
+            }
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    long getIndex() {
+        return index;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    private void track(long timestamp) {
+        if (timestamp < minTimestamp) {
+            minTimestamp = timestamp;
+        }
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+        }
+    }
+
+    interface RecordVisitor {
+        void visit(long timestamp, int appId, int uriId, long ipHigh, long ipLow);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+@RequiredArgsConstructor
+public class CompactionHorizons {
+    public static final String RAW = "raw";
+    public static final String MINUTE = "minute";
+    public static final String HOUR = "hour";
+    public static final String VISITORS_DAY = "visitors_day";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, LocalDateTime> horizons = new ConcurrentHashMap<>();
+
+    public void load() {
+        jdbcTemplate.query("SELECT level, horizon FROM compaction_horizons", (RowCallbackHandler) rs ->
+                horizons.put(rs.getString("level"), rs.getObject("horizon", LocalDateTime.class)));
+    }
+
+    public LocalDateTime getRaw() {
+        return get(RAW);
+    }
+
+    public LocalDateTime getMinute() {
+        return get(MINUTE);
+    }
+
+    public LocalDateTime getHour() {
+        return get(HOUR);
+    }
+
+    public LocalDateTime getVisitorsDay() {
+        return get(VISITORS_DAY);
+    }
+
+    public LocalDateTime advance(String level, LocalDateTime horizon) {
+        LocalDateTime advanced = jdbcTemplate.queryForObject("INSERT INTO compaction_horizons (level, horizon) " +
+                "VALUES (?, ?) ON CONFLICT (level) DO UPDATE " +
+                "SET horizon = GREATEST(compaction_horizons.horizon, EXCLUDED.horizon) RETURNING horizon",
+                LocalDateTime.class, level, horizon);
+        horizons.put(level, advanced);
+        return advanced;
+    }
+
+    private LocalDateTime get(String level) {
+        return horizons.getOrDefault(level, LocalDateTime.MIN);
+    }
+}
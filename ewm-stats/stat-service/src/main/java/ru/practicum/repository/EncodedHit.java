@@ -0,0 +1,16 @@
+package ru.practicum.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class EncodedHit {
+    private final int appId;
+    private final int uriId;
+    private final byte[] ip;
+    private final LocalDateTime timestamp;
+    private final String dedupKey;
+}
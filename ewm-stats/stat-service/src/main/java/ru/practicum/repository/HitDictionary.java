@@ -0,0 +1,147 @@
+package ru.practicum.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.utils.UriIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+public class HitDictionary {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate outsideTransaction;
+    private final Entries apps = new Entries("apps", "app_id");
+    private final Entries uris = new Entries("uris", "uri_id");
+
+    public HitDictionary(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.outsideTransaction = new TransactionTemplate(transactionManager);
+        this.outsideTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+    }
+
+    public void load() {
+        apps.load();
+        uris.load();
+    }
+
+    public int appId(String app) {
+        return apps.idOf(app);
+    }
+
+    public int uriId(String uri) {
+        return uris.idOf(uri);
+    }
+
+    public List<Integer> findUriIds(Collection<String> names) {
+        return uris.findAll(names);
+    }
+
+    public List<Integer> findAppIds(Collection<String> names) {
+        return apps.findAll(names);
+    }
+
+    public List<Integer> findUriIdsByPrefix(String prefix) {
+        return uris.findByPrefix(prefix);
+    }
+
+    public String appName(int appId) {
+        return apps.nameOf(appId);
+    }
+
+    public String uriName(int uriId) {
+        return uris.nameOf(uriId);
+    }
+
+    private class Entries {
+        private final String table;
+        private final String idColumn;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+        private final UriIndex index = new UriIndex();
+
+        Entries(String table, String idColumn) {
+            this.table = table;
+            this.idColumn = idColumn;
+        }
+
+        void load() {
+            jdbcTemplate.query("SELECT " + idColumn + ", name FROM " + table,
+                    (RowCallbackHandler) rs -> put(rs.getString("name"), rs.getInt(idColumn)));
+        }
+
+        int idOf(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            id = outsideTransaction.execute(status -> {
+                jdbcTemplate.update("INSERT INTO " + table + " (name) VALUES (?) ON CONFLICT (name) DO NOTHING", name);
+                return jdbcTemplate.queryForObject("SELECT " + idColumn + " FROM " + table + " WHERE name = ?",
+                        Integer.class, name);
+            });
+            put(name, id);
+            return id;
+        }
+
+        List<Integer> findAll(Collection<String> names) {
+            List<Integer> found = new ArrayList<>(names.size());
+            List<String> missing = new ArrayList<>();
+            boolean patterns = false;
+            for (String name : names) {
+                if (UriIndex.isPattern(name)) {
+                    found.addAll(index.findByPattern(name));
+                    patterns = true;
+                    continue;
+                }
+                Integer id = ids.get(name);
+                if (id != null) {
+                    found.add(id);
+                } else {
+                    missing.add(name);
+                }
+            }
+            if (!missing.isEmpty()) {
+                jdbcTemplate.query("SELECT " + idColumn + ", name FROM " + table + " WHERE name IN (" +
+                        String.join(", ", Collections.nCopies(missing.size(), "?")) + ")", rs -> {
+                    put(rs.getString("name"), rs.getInt(idColumn));
+                    found.add(rs.getInt(idColumn));
+                }, missing.toArray());
+            }
+            return patterns ? new ArrayList<>(new LinkedHashSet<>(found)) : found;
+        }
+
+        List<Integer> findByPrefix(String prefix) {
+            return index.findByPrefix(prefix);
+        }
+
+        String nameOf(int id) {
+            String name = names.get(id);
+            if (name != null) {
+                return name;
+            }
+            name = jdbcTemplate.queryForObject("SELECT name FROM " + table + " WHERE " + idColumn + " = ?",
+                    String.class, id);
+            put(name, id);
+            return name;
+        }
+
+        private void put(String name, int id) {
+            ids.put(name, id);
+            names.put(id, name);
+            index.put(name, id);
+        }
+    }
+}
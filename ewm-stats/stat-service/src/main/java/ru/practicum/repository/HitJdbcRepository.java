@@ -0,0 +1,140 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ViewStats;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Repository
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+@RequiredArgsConstructor
+public class HitJdbcRepository {
+    private static final String INSERT_HIT =
+            "INSERT INTO endpoint_hits (app_id, uri_id, ip, hit_timestamp) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_KEYED_HIT =
+            "INSERT INTO endpoint_hits (app_id, uri_id, ip, hit_timestamp, dedup_key) VALUES ";
+    private static final String ON_DUPLICATE_KEY =
+            " ON CONFLICT (dedup_key, hit_timestamp) WHERE dedup_key IS NOT NULL DO NOTHING";
+    private static final int KEYED_CHUNK_SIZE = 500;
+    private static final String COPY_HITS = "COPY endpoint_hits (app_id, uri_id, ip, hit_timestamp) FROM STDIN";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final HitDictionary dictionary;
+
+    @Value("${stats.ingest.jdbc-batch-size:1000}")
+    private int batchSize;
+
+    public Long save(EncodedHit hit) {
+        List<Long> ids = jdbcTemplate.queryForList(INSERT_KEYED_HIT + "(?, ?, ?, ?, ?)" + ON_DUPLICATE_KEY +
+                " RETURNING hit_id", Long.class, hit.getAppId(), hit.getUriId(), hit.getIp(), hit.getTimestamp(),
+                hit.getDedupKey());
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    public void saveAll(List<EncodedHit> hits) {
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, batchSize, (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setBytes(3, hit.getIp());
+            ps.setObject(4, hit.getTimestamp());
+        });
+    }
+
+    public List<EncodedHit> saveAllKeyed(List<EncodedHit> hits) {
+        List<EncodedHit> saved = new ArrayList<>(hits.size());
+        for (int from = 0; from < hits.size(); from += KEYED_CHUNK_SIZE) {
+            List<EncodedHit> chunk = hits.subList(from, Math.min(hits.size(), from + KEYED_CHUNK_SIZE));
+            Map<String, EncodedHit> byKey = new HashMap<>();
+            List<Object> args = new ArrayList<>(chunk.size() * 5);
+            for (EncodedHit hit : chunk) {
+                byKey.put(hit.getDedupKey() + '@' + hit.getTimestamp(), hit);
+                args.add(hit.getAppId());
+                args.add(hit.getUriId());
+                args.add(hit.getIp());
+                args.add(hit.getTimestamp());
+                args.add(hit.getDedupKey());
+            }
+            String sql = INSERT_KEYED_HIT + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, ?, ?)")) +
+                    ON_DUPLICATE_KEY + " RETURNING dedup_key, hit_timestamp::timestamp AS ts";
+            jdbcTemplate.query(sql, rs -> {
+                saved.add(byKey.get(rs.getString("dedup_key") + '@' + rs.getObject("ts", LocalDateTime.class)));
+            }, args.toArray());
+        }
+        return saved;
+    }
+
+    public long copyAll(List<EncodedHit> hits) {
+        StringBuilder rows = new StringBuilder(hits.size() * 64);
+        for (EncodedHit hit : hits) {
+            rows.append(hit.getAppId()).append('\t').append(hit.getUriId()).append("\t\\\\x");
+            for (byte b : hit.getIp()) {
+                rows.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+            }
+            rows.append('\t').append(hit.getTimestamp()).append('\n');
+        }
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_HITS, new StringReader(rows.toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    public List<ViewStats> getStatsUnique(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        List<ViewStats> stats = new ArrayList<>();
+        streamStatsUnique(start, end, uriIds, stats::add);
+        return stats;
+    }
+
+    public void streamStatsUnique(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                  Consumer<ViewStats> consumer) {
+        queryUnique(start, end, uriIds, null, null, consumer);
+    }
+
+    public List<ViewStats> getTopUnique(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, Integer appId,
+                                        int limit) {
+        List<ViewStats> stats = new ArrayList<>(limit);
+        queryUnique(start, end, uriIds, appId, limit, stats::add);
+        return stats;
+    }
+
+    private void queryUnique(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, Integer appId,
+                             Integer limit, Consumer<ViewStats> consumer) {
+        String sql = "SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits FROM endpoint_hits " +
+                "WHERE hit_timestamp >= :start AND hit_timestamp <= :end" +
+                (uriIds != null ? " AND uri_id IN (:uriIds)" : "") +
+                (appId != null ? " AND app_id = :appId" : "") +
+                " GROUP BY app_id, uri_id ORDER BY hits DESC" + (limit != null ? " LIMIT :limit" : "");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end)
+                .addValue("uriIds", uriIds)
+                .addValue("appId", appId)
+                .addValue("limit", limit);
+        namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> consumer.accept(new ViewStats(
+                dictionary.appName(rs.getInt("app_id")), dictionary.uriName(rs.getInt("uri_id")), rs.getLong("hits"))));
+    }
+}
@@ -0,0 +1,256 @@
+package ru.practicum.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.TimeSeries;
+import ru.practicum.ViewStats;
+import ru.practicum.service.ParallelQueryExecutor;
+import ru.practicum.service.RollupPlan;
+import ru.practicum.service.TimeSeriesPlan;
+import ru.practicum.service.TopStats;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+@Repository
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RollupRepository {
+    private static final String UPSERT =
+            "INSERT INTO %s (bucket, app_id, uri_id, hits) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (bucket, app_id, uri_id) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator.comparing(RollupKey::getBucket)
+            .thenComparingInt(RollupKey::getAppId)
+            .thenComparingInt(RollupKey::getUriId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final HitDictionary dictionary;
+    private final CompactionHorizons horizons;
+    private final Optional<ParallelQueryExecutor> parallelExecutor;
+
+    public void increment(List<EncodedHit> hits) {
+        upsert("hits_minute", aggregate(hits, ChronoUnit.MINUTES));
+        upsert("hits_hour", aggregate(hits, ChronoUnit.HOURS));
+        upsert("hits_day", aggregate(hits, ChronoUnit.DAYS));
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        List<ViewStats> stats = new ArrayList<>();
+        streamStats(start, end, uriIds, stats::add);
+        return stats;
+    }
+
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                            Consumer<ViewStats> consumer) {
+        query(start, end, uriIds, null, null, consumer);
+    }
+
+    public List<ViewStats> getTop(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, Integer appId,
+                                  int limit) {
+        List<ViewStats> stats = new ArrayList<>(limit);
+        query(start, end, uriIds, appId, limit, stats::add);
+        return stats;
+    }
+
+    public List<TimeSeries> getTimeSeries(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                          TimeSeriesPlan series) {
+        LocalDateTime historyEnd = historyEnd(start, end);
+        ChronoUnit coarse = series.getStep() % 3600 == 0 || historyEnd.isBefore(horizons.getMinute())
+                ? ChronoUnit.HOURS : ChronoUnit.MINUTES;
+        RollupPlan plan = RollupPlan.of(historyEnd, end, ChronoUnit.MINUTES, coarse, horizons.getRaw(),
+                horizons.getMinute());
+        String coarseTable = coarse == ChronoUnit.HOURS ? "hits_hour" : "hits_minute";
+        String uriFilter = " AND uri_id IN (:uriIds)";
+        String sql = "SELECT app_id, uri_id, CAST(FLOOR((EXTRACT(EPOCH FROM ts) - :origin) / :step) AS int) AS slot, " +
+                "SUM(hits) AS hits FROM (" +
+                "SELECT app_id, uri_id, bucket AS ts, hits FROM hits_day " +
+                "WHERE bucket >= :historyStart AND bucket < :historyEnd" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, hit_timestamp::timestamp, 1 FROM endpoint_hits " +
+                "WHERE hit_timestamp >= :start AND hit_timestamp < :fineStart" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, bucket, hits FROM hits_minute " +
+                "WHERE bucket >= :fineStart AND bucket < :coarseStart" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, bucket, hits FROM " + coarseTable + " " +
+                "WHERE bucket >= :coarseStart AND bucket < :coarseEnd" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, bucket, hits FROM hits_minute " +
+                "WHERE bucket >= :coarseEnd AND bucket < :fineEnd" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, hit_timestamp::timestamp, 1 FROM endpoint_hits " +
+                "WHERE hit_timestamp >= :fineEnd AND hit_timestamp <= :end" + uriFilter +
+                ") parts GROUP BY app_id, uri_id, slot";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("historyStart", historyStart(start))
+                .addValue("historyEnd", historyEnd)
+                .addValue("start", plan.getStart())
+                .addValue("fineStart", plan.getFineStart())
+                .addValue("coarseStart", plan.getCoarseStart())
+                .addValue("coarseEnd", plan.getCoarseEnd())
+                .addValue("fineEnd", plan.getFineEnd())
+                .addValue("end", plan.getEnd())
+                .addValue("uriIds", uriIds)
+                .addValue("origin", series.getOrigin().toEpochSecond(ZoneOffset.UTC))
+                .addValue("step", series.getStep());
+        Map<RollupKey, long[]> counts = new LinkedHashMap<>();
+        namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+            int slot = rs.getInt("slot");
+            if (slot >= 0 && slot < series.getPoints()) {
+                RollupKey key = new RollupKey(null, rs.getInt("app_id"), rs.getInt("uri_id"));
+                counts.computeIfAbsent(key, k -> new long[series.getPoints()])[slot] += rs.getLong("hits");
+            }
+        });
+        List<TimeSeries> result = new ArrayList<>(counts.size());
+        counts.forEach((key, values) -> result.add(new TimeSeries(dictionary.appName(key.getAppId()),
+                dictionary.uriName(key.getUriId()), series.getOrigin(), series.getStep(), values)));
+        return result;
+    }
+
+    private void query(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, Integer appId, Integer limit,
+                       Consumer<ViewStats> consumer) {
+        LocalDateTime historyStart = historyStart(start);
+        LocalDateTime historyEnd = historyEnd(start, end);
+        RollupPlan plan = RollupPlan.of(historyEnd, end, ChronoUnit.MINUTES, ChronoUnit.HOURS, horizons.getRaw(),
+                horizons.getMinute());
+        String uriFilter = (uriIds != null ? " AND uri_id IN (:uriIds)" : "") +
+                (appId != null ? " AND app_id = :appId" : "");
+        String sql = "SELECT app_id, uri_id, SUM(hits) AS hits FROM (" +
+                "SELECT app_id, uri_id, hits FROM hits_day " +
+                "WHERE bucket >= :historyStart AND bucket < :historyEnd" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, COUNT(*) AS hits FROM endpoint_hits " +
+                "WHERE hit_timestamp >= :start AND hit_timestamp < :fineStart" + uriFilter +
+                " GROUP BY app_id, uri_id " +
+                "UNION ALL SELECT app_id, uri_id, hits FROM hits_minute " +
+                "WHERE bucket >= :fineStart AND bucket < :coarseStart" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, hits FROM hits_hour " +
+                "WHERE bucket >= :coarseFrom AND bucket < :coarseTo" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, hits FROM hits_minute " +
+                "WHERE bucket >= :coarseEnd AND bucket < :fineEnd" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, COUNT(*) AS hits FROM endpoint_hits " +
+                "WHERE hit_timestamp >= :fineEnd AND hit_timestamp <= :end" + uriFilter +
+                " GROUP BY app_id, uri_id" +
+                ") parts GROUP BY app_id, uri_id";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("historyStart", historyStart)
+                .addValue("historyEnd", historyEnd)
+                .addValue("start", plan.getStart())
+                .addValue("fineStart", plan.getFineStart())
+                .addValue("coarseStart", plan.getCoarseStart())
+                .addValue("coarseFrom", plan.getCoarseStart())
+                .addValue("coarseTo", plan.getCoarseEnd())
+                .addValue("coarseEnd", plan.getCoarseEnd())
+                .addValue("fineEnd", plan.getFineEnd())
+                .addValue("end", plan.getEnd())
+                .addValue("uriIds", uriIds)
+                .addValue("appId", appId)
+                .addValue("limit", limit);
+        List<LocalDateTime> days = split(historyStart, historyEnd);
+        List<LocalDateTime> hours = split(plan.getCoarseStart(), plan.getCoarseEnd());
+        if (days.size() == 2 && hours.size() == 2) {
+            namedJdbcTemplate.query(sql + " ORDER BY hits DESC" + (limit != null ? " LIMIT :limit" : ""), params,
+                    (RowCallbackHandler) rs -> consumer.accept(new ViewStats(dictionary.appName(rs.getInt("app_id")),
+                            dictionary.uriName(rs.getInt("uri_id")), rs.getLong("hits"))));
+            return;
+        }
+        params.addValue("historyEnd", historyStart).addValue("coarseTo", plan.getCoarseStart());
+        List<Callable<Map<Long, Long>>> tasks = new ArrayList<>();
+        tasks.add(() -> sum(sql, params));
+        addChunks(tasks, "hits_day", days, uriFilter, uriIds, appId);
+        addChunks(tasks, "hits_hour", hours, uriFilter, uriIds, appId);
+        Map<Long, Long> totals = new HashMap<>();
+        for (Map<Long, Long> part : parallelExecutor.get().invokeAll(tasks)) {
+            part.forEach((key, hits) -> totals.merge(key, hits, Long::sum));
+        }
+        if (limit == null) {
+            totals.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                    .forEach(entry -> consumer.accept(toViewStats(entry.getKey(), entry.getValue())));
+            return;
+        }
+        TopStats top = new TopStats(limit);
+        totals.forEach((key, hits) -> top.accept(toViewStats(key, hits)));
+        top.toList().forEach(consumer);
+    }
+
+    private ViewStats toViewStats(long key, long hits) {
+        return new ViewStats(dictionary.appName((int) (key >>> 32)), dictionary.uriName((int) key), hits);
+    }
+
+    private List<LocalDateTime> split(LocalDateTime start, LocalDateTime end) {
+        if (parallelExecutor.isEmpty() || !start.isBefore(end)) {
+            return List.of(start, end);
+        }
+        return parallelExecutor.get().split(start, end);
+    }
+
+    private void addChunks(List<Callable<Map<Long, Long>>> tasks, String table, List<LocalDateTime> bounds,
+                           String uriFilter, List<Integer> uriIds, Integer appId) {
+        String sql = "SELECT app_id, uri_id, SUM(hits) AS hits FROM " + table +
+                " WHERE bucket >= :from AND bucket < :to" + uriFilter + " GROUP BY app_id, uri_id";
+        for (int i = 1; i < bounds.size(); i++) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("from", bounds.get(i - 1))
+                    .addValue("to", bounds.get(i))
+                    .addValue("uriIds", uriIds)
+                    .addValue("appId", appId);
+            tasks.add(() -> sum(sql, params));
+        }
+    }
+
+    private Map<Long, Long> sum(String sql, MapSqlParameterSource params) {
+        Map<Long, Long> hits = new HashMap<>();
+        namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> hits.merge(
+                ((long) rs.getInt("app_id") << 32) | rs.getInt("uri_id"), rs.getLong("hits"), Long::sum));
+        return hits;
+    }
+
+    // hits_minute and hits_hour are gone before the hour horizon, so a start or end inside such a day is widened
+    // to the whole day and hits_day is counted for it. ewm-stats-service-spec.json documents this.
+    private LocalDateTime historyStart(LocalDateTime start) {
+        return RollupPlan.historyStart(start, horizons.getHour());
+    }
+
+    private LocalDateTime historyEnd(LocalDateTime start, LocalDateTime end) {
+        return RollupPlan.historyEnd(start, end, horizons.getHour());
+    }
+
+    private Map<RollupKey, Long> aggregate(List<EncodedHit> hits, ChronoUnit unit) {
+        Map<RollupKey, Long> counts = new TreeMap<>(KEY_ORDER);
+        for (EncodedHit hit : hits) {
+            RollupKey key = new RollupKey(hit.getTimestamp().truncatedTo(unit), hit.getAppId(), hit.getUriId());
+            counts.merge(key, 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    private void upsert(String table, Map<RollupKey, Long> counts) {
+        List<Object[]> args = new ArrayList<>(counts.size());
+        counts.forEach((key, hits) -> args.add(new Object[]{key.getBucket(), key.getAppId(), key.getUriId(), hits}));
+        jdbcTemplate.batchUpdate(String.format(UPSERT, table), args);
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class RollupKey {
+        private final LocalDateTime bucket;
+        private final int appId;
+        private final int uriId;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public class SketchKey {
+    private final LocalDateTime bucket;
+    private final int appId;
+    private final int uriId;
+}
@@ -0,0 +1,321 @@
+package ru.practicum.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ViewStats;
+import ru.practicum.sketch.Hashing;
+import ru.practicum.sketch.HyperLogLog;
+import ru.practicum.service.ParallelQueryExecutor;
+import ru.practicum.service.RollupPlan;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+@Repository
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+public class SketchRepository {
+    private static final int LOCK_CHUNK_SIZE = 500;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final Comparator<SketchKey> KEY_ORDER = Comparator.comparing(SketchKey::getBucket,
+                    Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparingInt(SketchKey::getAppId)
+            .thenComparingInt(SketchKey::getUriId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final HitDictionary dictionary;
+    private final CompactionHorizons horizons;
+    private final Optional<ParallelQueryExecutor> parallelExecutor;
+    private final int precision;
+    private final byte[] emptySketch;
+
+    public SketchRepository(JdbcTemplate jdbcTemplate,
+                            NamedParameterJdbcTemplate namedJdbcTemplate,
+                            HitDictionary dictionary,
+                            CompactionHorizons horizons,
+                            Optional<ParallelQueryExecutor> parallelExecutor,
+                            @Value("${stats.hll.relative-error:0.01}") double relativeError) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.dictionary = dictionary;
+        this.horizons = horizons;
+        this.parallelExecutor = parallelExecutor;
+        this.precision = HyperLogLog.precisionFor(relativeError);
+        this.emptySketch = newSketch().toBytes();
+    }
+
+    public HyperLogLog newSketch() {
+        return new HyperLogLog(precision);
+    }
+
+    public void merge(List<EncodedHit> hits) {
+        Map<SketchKey, HyperLogLog> hours = new HashMap<>();
+        Map<SketchKey, HyperLogLog> totals = new HashMap<>();
+        for (EncodedHit hit : hits) {
+            long hash = Hashing.hash64(hit.getIp());
+            hours.computeIfAbsent(new SketchKey(hit.getTimestamp().truncatedTo(ChronoUnit.HOURS), hit.getAppId(),
+                    hit.getUriId()), key -> newSketch()).offerHash(hash);
+            totals.computeIfAbsent(new SketchKey(null, hit.getAppId(), hit.getUriId()), key -> newSketch())
+                    .offerHash(hash);
+        }
+        mergeHours(hours);
+        mergeTotals(totals);
+    }
+
+    public void mergeHours(Map<SketchKey, HyperLogLog> sketches) {
+        merge("visitors_hour", sketches);
+        LocalDateTime dayHorizon = dayHorizon();
+        Map<SketchKey, HyperLogLog> late = new HashMap<>();
+        sketches.forEach((key, sketch) -> {
+            if (key.getBucket().isBefore(dayHorizon)) {
+                late.merge(new SketchKey(key.getBucket().truncatedTo(ChronoUnit.DAYS), key.getAppId(),
+                        key.getUriId()), newSketch().merge(sketch), HyperLogLog::merge);
+            }
+        });
+        if (!late.isEmpty()) {
+            merge("visitors_day", late);
+        }
+    }
+
+    public void mergeTotals(Map<SketchKey, HyperLogLog> sketches) {
+        Map<SketchKey, HyperLogLog> sorted = new TreeMap<>(KEY_ORDER);
+        sorted.putAll(sketches);
+        update("uri_counters", false, sorted);
+    }
+
+    public LocalDateTime nextDayToRollUp(LocalDateTime until) {
+        LocalDateTime from = dayHorizon();
+        if (!from.isBefore(until)) {
+            return null;
+        }
+        LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(bucket)::timestamp FROM visitors_hour " +
+                "WHERE bucket >= ? AND bucket < ?", LocalDateTime.class, from, until);
+        return oldest != null ? oldest.truncatedTo(ChronoUnit.DAYS) : null;
+    }
+
+    public void rollUpDay(LocalDateTime day) {
+        Map<SketchKey, HyperLogLog> days = new HashMap<>();
+        jdbcTemplate.query("SELECT app_id, uri_id, sketch FROM visitors_hour WHERE bucket >= ? AND bucket < ?",
+                (RowCallbackHandler) rs -> days.merge(new SketchKey(day, rs.getInt("app_id"), rs.getInt("uri_id")),
+                        HyperLogLog.fromBytes(rs.getBytes("sketch")), HyperLogLog::merge),
+                day, day.plusDays(1));
+        merge("visitors_day", days);
+        horizons.advance(CompactionHorizons.VISITORS_DAY, day.plusDays(1));
+    }
+
+    public void markRolledUp(LocalDateTime until) {
+        if (horizons.getVisitorsDay().isBefore(until)) {
+            horizons.advance(CompactionHorizons.VISITORS_DAY, until);
+        }
+    }
+
+    public int fillMissingTotals(int limit) {
+        List<SketchKey> keys = jdbcTemplate.query("SELECT app_id, uri_id FROM uri_counters WHERE sketch IS NULL " +
+                        "ORDER BY app_id, uri_id LIMIT ? FOR UPDATE SKIP LOCKED",
+                (rs, rowNum) -> new SketchKey(null, rs.getInt("app_id"), rs.getInt("uri_id")), limit);
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Map<SketchKey, HyperLogLog> totals = new HashMap<>();
+        for (SketchKey key : keys) {
+            totals.put(key, newSketch());
+        }
+        String pairs = String.join(", ", Collections.nCopies(keys.size(), "(?, ?)"));
+        List<Object> pairArgs = new ArrayList<>(keys.size() * 2);
+        for (SketchKey key : keys) {
+            pairArgs.add(key.getAppId());
+            pairArgs.add(key.getUriId());
+        }
+        LocalDateTime dayHorizon = dayHorizon();
+        List<Object> args = new ArrayList<>(pairArgs);
+        args.add(dayHorizon);
+        args.addAll(pairArgs);
+        args.add(dayHorizon);
+        jdbcTemplate.query("SELECT app_id, uri_id, sketch FROM visitors_day WHERE (app_id, uri_id) IN (" + pairs +
+                        ") AND bucket < ? UNION ALL SELECT app_id, uri_id, sketch FROM visitors_hour " +
+                        "WHERE (app_id, uri_id) IN (" + pairs + ") AND bucket >= ?",
+                (RowCallbackHandler) rs -> {
+                    HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("sketch"));
+                    totals.computeIfPresent(new SketchKey(null, rs.getInt("app_id"), rs.getInt("uri_id")),
+                            (key, total) -> total.merge(sketch));
+                },
+                args.toArray());
+        List<Object[]> updates = new ArrayList<>(keys.size());
+        totals.forEach((key, total) -> updates.add(new Object[]{total.toBytes(), key.getAppId(), key.getUriId()}));
+        jdbcTemplate.batchUpdate("UPDATE uri_counters SET sketch = ? WHERE app_id = ? AND uri_id = ?", updates);
+        return keys.size();
+    }
+
+    public void streamCardinalities(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                    Consumer<ViewStats> consumer) {
+        RollupPlan plan = RollupPlan.of(start, end, ChronoUnit.HOURS, ChronoUnit.DAYS, horizons.getRaw(),
+                horizons.getHour());
+        LocalDateTime dayHorizon = dayHorizon();
+        LocalDateTime dayEnd = plan.getCoarseEnd().isBefore(dayHorizon) ? plan.getCoarseEnd()
+                : plan.getCoarseStart().isBefore(dayHorizon) ? dayHorizon : plan.getCoarseStart();
+        String uriFilter = uriIds != null ? " AND uri_id IN (:uriIds)" : "";
+        String sql = "SELECT app_id, uri_id, sketch, CAST(NULL AS bytea) AS ip FROM visitors_hour " +
+                "WHERE ((bucket >= :fineStart AND bucket < :coarseStart) " +
+                "OR (bucket >= :coarseEnd AND bucket < :fineEnd))" + uriFilter + " " +
+                "UNION ALL SELECT app_id, uri_id, sketch, CAST(NULL AS bytea) AS ip FROM visitors_day " +
+                "WHERE bucket >= :coarseFrom AND bucket < :coarseTo" + uriFilter + " " +
+                "UNION ALL SELECT DISTINCT app_id, uri_id, CAST(NULL AS bytea) AS sketch, ip FROM endpoint_hits " +
+                "WHERE ((hit_timestamp >= :start AND hit_timestamp < :fineStart) " +
+                "OR (hit_timestamp >= :fineEnd AND hit_timestamp <= :end))" + uriFilter;
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", plan.getStart())
+                .addValue("fineStart", plan.getFineStart())
+                .addValue("coarseStart", plan.getCoarseStart())
+                .addValue("coarseFrom", plan.getCoarseStart())
+                .addValue("coarseTo", dayEnd)
+                .addValue("coarseEnd", dayEnd)
+                .addValue("fineEnd", plan.getFineEnd())
+                .addValue("end", plan.getEnd())
+                .addValue("uriIds", uriIds);
+        List<LocalDateTime> days = plan.getCoarseStart().isBefore(dayEnd) && parallelExecutor.isPresent()
+                ? parallelExecutor.get().split(plan.getCoarseStart(), dayEnd)
+                : List.of(plan.getCoarseStart(), dayEnd);
+        if (days.size() == 2) {
+            SketchMerger merger = new SketchMerger(consumer);
+            namedJdbcTemplate.query(sql + " ORDER BY app_id, uri_id", params, merger);
+            merger.emit();
+            return;
+        }
+        params.addValue("coarseTo", plan.getCoarseStart());
+        List<Callable<Map<Long, HyperLogLog>>> tasks = new ArrayList<>();
+        tasks.add(() -> collect(sql, params));
+        String chunkSql = "SELECT app_id, uri_id, sketch, CAST(NULL AS bytea) AS ip FROM visitors_day " +
+                "WHERE bucket >= :from AND bucket < :to" + uriFilter;
+        for (int i = 1; i < days.size(); i++) {
+            MapSqlParameterSource chunkParams = new MapSqlParameterSource()
+                    .addValue("from", days.get(i - 1))
+                    .addValue("to", days.get(i))
+                    .addValue("uriIds", uriIds);
+            tasks.add(() -> collect(chunkSql, chunkParams));
+        }
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+        for (Map<Long, HyperLogLog> part : parallelExecutor.get().invokeAll(tasks)) {
+            part.forEach((key, sketch) -> sketches.merge(key, sketch, HyperLogLog::merge));
+        }
+        sketches.forEach((key, sketch) -> consumer.accept(new ViewStats(dictionary.appName((int) (key >>> 32)),
+                dictionary.uriName(key.intValue()), sketch.cardinality())));
+    }
+
+    private Map<Long, HyperLogLog> collect(String sql, MapSqlParameterSource params) {
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+        namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+            long key = ((long) rs.getInt("app_id") << 32) | rs.getInt("uri_id");
+            HyperLogLog sketch = sketches.computeIfAbsent(key, k -> newSketch());
+            byte[] bytes = rs.getBytes("sketch");
+            if (bytes != null) {
+                sketches.put(key, sketch.merge(HyperLogLog.fromBytes(bytes)));
+            } else {
+                sketch.offer(rs.getBytes("ip"));
+            }
+        });
+        return sketches;
+    }
+
+    private LocalDateTime dayHorizon() {
+        LocalDateTime horizon = horizons.getVisitorsDay().isAfter(horizons.getHour())
+                ? horizons.getVisitorsDay() : horizons.getHour();
+        return horizon.isAfter(EPOCH) ? horizon : EPOCH;
+    }
+
+    private void merge(String table, Map<SketchKey, HyperLogLog> sketches) {
+        Map<SketchKey, HyperLogLog> sorted = new TreeMap<>(KEY_ORDER);
+        sorted.putAll(sketches);
+        List<Object[]> inserts = new ArrayList<>(sorted.size());
+        for (SketchKey key : sorted.keySet()) {
+            inserts.add(new Object[]{key.getBucket(), key.getAppId(), key.getUriId(), emptySketch});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (bucket, app_id, uri_id, sketch) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT (bucket, app_id, uri_id) DO NOTHING", inserts);
+        update(table, true, sorted);
+    }
+
+    private void update(String table, boolean bucketed, Map<SketchKey, HyperLogLog> sketches) {
+        List<SketchKey> keys = new ArrayList<>(sketches.keySet());
+        String columns = bucketed ? "bucket, app_id, uri_id" : "app_id, uri_id";
+        String row = bucketed ? "(?, ?, ?)" : "(?, ?)";
+        List<Object[]> updates = new ArrayList<>(keys.size());
+        for (int from = 0; from < keys.size(); from += LOCK_CHUNK_SIZE) {
+            List<SketchKey> chunk = keys.subList(from, Math.min(keys.size(), from + LOCK_CHUNK_SIZE));
+            List<Object> args = new ArrayList<>(chunk.size() * 3);
+            for (SketchKey key : chunk) {
+                if (bucketed) {
+                    args.add(key.getBucket());
+                }
+                args.add(key.getAppId());
+                args.add(key.getUriId());
+            }
+            String sql = "SELECT " + columns + ", sketch FROM " + table + " WHERE (" + columns + ") IN (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), row)) +
+                    ") AND sketch IS NOT NULL ORDER BY " + columns + " FOR UPDATE";
+            jdbcTemplate.query(sql, rs -> {
+                SketchKey key = new SketchKey(bucketed ? rs.getObject("bucket", LocalDateTime.class) : null,
+                        rs.getInt("app_id"), rs.getInt("uri_id"));
+                HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("sketch")).merge(sketches.get(key));
+                updates.add(bucketed
+                        ? new Object[]{sketch.toBytes(), key.getBucket(), key.getAppId(), key.getUriId()}
+                        : new Object[]{sketch.toBytes(), key.getAppId(), key.getUriId()});
+            }, args.toArray());
+        }
+        jdbcTemplate.batchUpdate("UPDATE " + table + " SET sketch = ? WHERE " + (bucketed ? "bucket = ? AND " : "") +
+                "app_id = ? AND uri_id = ?", updates);
+    }
+
+    private class SketchMerger implements RowCallbackHandler {
+        private final Consumer<ViewStats> consumer;
+        private HyperLogLog sketch;
+        private int appId;
+        private int uriId;
+
+        SketchMerger(Consumer<ViewStats> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int rowAppId = rs.getInt("app_id");
+            int rowUriId = rs.getInt("uri_id");
+            if (sketch == null || rowAppId != appId || rowUriId != uriId) {
+                emit();
+                sketch = newSketch();
+                appId = rowAppId;
+                uriId = rowUriId;
+            }
+            byte[] bytes = rs.getBytes("sketch");
+            if (bytes != null) {
+                sketch = sketch.merge(HyperLogLog.fromBytes(bytes));
+            } else {
+                sketch.offer(rs.getBytes("ip"));
+            }
+        }
+
+        void emit() {
+            if (sketch != null) {
+                consumer.accept(new ViewStats(dictionary.appName(appId), dictionary.uriName(uriId),
+                        sketch.cardinality()));
+                sketch = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ViewStats;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+@Repository
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+public class UriCounterRepository {
+    private static final String UPSERT =
+            "INSERT INTO uri_counters (app_id, uri_id, total_hits, first_hit, last_hit, sketch) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (app_id, uri_id) DO UPDATE SET " +
+            "total_hits = uri_counters.total_hits + EXCLUDED.total_hits, " +
+            "first_hit = LEAST(uri_counters.first_hit, EXCLUDED.first_hit), " +
+            "last_hit = GREATEST(uri_counters.last_hit, EXCLUDED.last_hit)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final HitDictionary dictionary;
+    private final byte[] emptySketch;
+
+    public UriCounterRepository(JdbcTemplate jdbcTemplate,
+                                NamedParameterJdbcTemplate namedJdbcTemplate,
+                                HitDictionary dictionary,
+                                SketchRepository sketchRepository,
+                                @Value("${stats.hll.enabled:true}") boolean hllEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.dictionary = dictionary;
+        this.emptySketch = hllEnabled ? sketchRepository.newSketch().toBytes() : null;
+    }
+
+    public void increment(List<EncodedHit> hits) {
+        Map<Long, Totals> totals = new TreeMap<>();
+        for (EncodedHit hit : hits) {
+            long key = ((long) hit.getAppId() << 32) | hit.getUriId();
+            Totals current = totals.get(key);
+            if (current == null) {
+                totals.put(key, new Totals(hit.getAppId(), hit.getUriId(), 1, hit.getTimestamp(),
+                        hit.getTimestamp()));
+            } else {
+                current.add(hit.getTimestamp());
+            }
+        }
+        List<Object[]> args = new ArrayList<>(totals.size());
+        for (Totals current : totals.values()) {
+            args.add(new Object[]{current.appId, current.uriId, current.hits, current.first, current.last,
+                    emptySketch});
+        }
+        jdbcTemplate.batchUpdate(UPSERT, args);
+    }
+
+    public boolean streamTotals(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique,
+                                Consumer<ViewStats> consumer) {
+        String sql = "SELECT app_id, uri_id, " + (unique ? "sketch" : "total_hits") + ", " +
+                "bool_and(first_hit >= :start AND last_hit <= :end" + (unique ? " AND sketch IS NOT NULL" : "") +
+                ") OVER () AS covered FROM uri_counters" + (uriIds != null ? " WHERE uri_id IN (:uriIds)" : "");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end)
+                .addValue("uriIds", uriIds);
+        ResultSetExtractor<Boolean> extractor = rs -> {
+            while (rs.next()) {
+                if (!rs.getBoolean("covered")) {
+                    return false;
+                }
+                long hits = unique ? HyperLogLog.fromBytes(rs.getBytes("sketch")).cardinality()
+                        : rs.getLong("total_hits");
+                consumer.accept(new ViewStats(dictionary.appName(rs.getInt("app_id")),
+                        dictionary.uriName(rs.getInt("uri_id")), hits));
+            }
+            return true;
+        };
+        return Boolean.TRUE.equals(namedJdbcTemplate.query(sql, params, extractor));
+    }
+
+    @AllArgsConstructor
+    private static class Totals {
+        private final int appId;
+        private final int uriId;
+        private long hits;
+        private LocalDateTime first;
+        private LocalDateTime last;
+
+        void add(LocalDateTime timestamp) {
+            hits++;
+            if (timestamp.isBefore(first)) {
+                first = timestamp;
+            }
+            if (timestamp.isAfter(last)) {
+                last = timestamp;
+            }
+        }
+    }
+}
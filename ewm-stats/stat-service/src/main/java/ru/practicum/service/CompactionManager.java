@@ -0,0 +1,92 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.repository.CompactionHorizons;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+public class CompactionManager {
+    private final JdbcTemplate jdbcTemplate;
+    private final CompactionHorizons horizons;
+    private final Optional<SketchBuffer> sketchBuffer;
+    private final int minuteRetentionDays;
+    private final int hourRetentionDays;
+    private final int chunkMinutes;
+
+    public CompactionManager(JdbcTemplate jdbcTemplate,
+                             CompactionHorizons horizons,
+                             Optional<SketchBuffer> sketchBuffer,
+                             @Value("${stats.compaction.raw-retention-days:0}") int rawRetentionDays,
+                             @Value("${stats.compaction.minute-retention-days:0}") int minuteRetentionDays,
+                             @Value("${stats.compaction.hour-retention-days:0}") int hourRetentionDays,
+                             @Value("${stats.compaction.chunk-minutes:60}") int chunkMinutes) {
+        if (!retainedLonger(rawRetentionDays, minuteRetentionDays) ||
+                !retainedLonger(minuteRetentionDays, hourRetentionDays)) {
+            throw new IllegalArgumentException("Срок хранения детальных данных не может превышать срок хранения " +
+                    "более грубых агрегатов");
+        }
+        if (chunkMinutes <= 0) {
+            throw new IllegalArgumentException("Размер порции сжатия должен быть положительным");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.horizons = horizons;
+        this.sketchBuffer = sketchBuffer;
+        this.minuteRetentionDays = minuteRetentionDays;
+        this.hourRetentionDays = hourRetentionDays;
+        this.chunkMinutes = chunkMinutes;
+    }
+
+    @Scheduled(cron = "${stats.compaction.cron:0 15 * * * *}")
+    public void compact() {
+        LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        compact(CompactionHorizons.MINUTE, minuteRetentionDays, today, "bucket", "hits_minute");
+        if (hourRetentionDays > 0) {
+            sketchBuffer.ifPresent(buffer -> buffer.rollUpDays(today.minusDays(hourRetentionDays)));
+        }
+        compact(CompactionHorizons.HOUR, hourRetentionDays, today, "bucket", "hits_hour", "visitors_hour");
+    }
+
+    private void compact(String level, int retentionDays, LocalDateTime today, String column, String... tables) {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDateTime horizon = horizons.advance(level, today.minusDays(retentionDays));
+        for (String table : tables) {
+            long deleted = deleteBefore(table, column, horizon);
+            if (deleted > 0) {
+                log.info("Сжатие {}: удалено {} строк до {}", table, deleted, horizon);
+            }
+        }
+    }
+
+    private long deleteBefore(String table, String column, LocalDateTime horizon) {
+        long deleted = 0;
+        LocalDateTime oldest = oldest(table, column, horizon);
+        while (oldest != null) {
+            LocalDateTime to = oldest.plusMinutes(chunkMinutes);
+            deleted += jdbcTemplate.update("DELETE FROM " + table + " WHERE " + column + " >= ? AND " + column +
+                    " < ?", oldest, to.isBefore(horizon) ? to : horizon);
+            oldest = oldest(table, column, horizon);
+        }
+        return deleted;
+    }
+
+    private LocalDateTime oldest(String table, String column, LocalDateTime horizon) {
+        return jdbcTemplate.queryForObject("SELECT MIN(" + column + ")::timestamp FROM " + table + " WHERE " +
+                column + " < ?", LocalDateTime.class, horizon);
+    }
+
+    private static boolean retainedLonger(int finerDays, int coarserDays) {
+        return coarserDays <= 0 || (finerDays > 0 && finerDays <= coarserDays);
+    }
+}
@@ -0,0 +1,123 @@
+package ru.practicum.service;
+
+import ru.practicum.HeavyHitter;
+import ru.practicum.sketch.CountMinSketch;
+import ru.practicum.sketch.Hashing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+class HeavyHitterTracker {
+    private final Slot[] slots;
+    private final long slotMillis;
+    private final int capacity;
+
+    HeavyHitterTracker(long windowMillis, int slotCount, int capacity, Supplier<CountMinSketch> sketches) {
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot(sketches.get());
+        }
+        this.slotMillis = Math.max(1, windowMillis / slotCount);
+        this.capacity = capacity;
+    }
+
+    void add(String key, long now) {
+        long epoch = now / slotMillis;
+        Slot slot = slots[(int) (epoch % slots.length)];
+        slot.rotate(epoch);
+        long hash = Hashing.mix(key.hashCode());
+        slot.offer(key, slot.sketch.add(hash), capacity);
+    }
+
+    List<HeavyHitter> top(int limit, long now) {
+        long epoch = now / slotMillis;
+        List<Slot> live = new ArrayList<>(slots.length);
+        Set<String> keys = new HashSet<>();
+        for (Slot slot : slots) {
+            if (slot.epoch > epoch - slots.length) {
+                live.add(slot);
+                keys.addAll(slot.candidates());
+            }
+        }
+        List<HeavyHitter> hitters = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            long hash = Hashing.mix(key.hashCode());
+            long hits = 0;
+            for (Slot slot : live) {
+                hits += slot.sketch.estimate(hash);
+            }
+            hitters.add(new HeavyHitter(key, hits));
+        }
+        hitters.sort(Comparator.comparing(HeavyHitter::getHits).reversed());
+        return new ArrayList<>(hitters.subList(0, Math.min(limit, hitters.size())));
+    }
+
+    private static class Slot {
+        private final CountMinSketch sketch;
+        private final Map<String, Long> candidates = new HashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long epoch = Long.MIN_VALUE;
+        private volatile long threshold;
+
+        Slot(CountMinSketch sketch) {
+            this.sketch = sketch;
+        }
+
+        void rotate(long current) {
+            if (epoch == current) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (epoch != current) {
+                    sketch.clear();
+                    candidates.clear();
+                    threshold = 0;
+                    epoch = current;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void offer(String key, long estimate, int capacity) {
+            if (estimate <= threshold) {
+                return;
+            }
+            lock.lock();
+            try {
+                candidates.put(key, estimate);
+                if (candidates.size() > capacity) {
+                    String weakest = null;
+                    long weakestHits = Long.MAX_VALUE;
+                    for (Map.Entry<String, Long> candidate : candidates.entrySet()) {
+                        if (candidate.getValue() < weakestHits) {
+                            weakest = candidate.getKey();
+                            weakestHits = candidate.getValue();
+                        }
+                    }
+                    candidates.remove(weakest);
+                    threshold = weakestHits;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<String> candidates() {
+            lock.lock();
+            try {
+                return new ArrayList<>(candidates.keySet());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.HeavyHitter;
+import ru.practicum.sketch.CountMinSketch;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "stats.heavy-hitters.enabled", havingValue = "true", matchIfMissing = true)
+public class HeavyHitters {
+    private final HeavyHitterTracker uris;
+    private final HeavyHitterTracker ips;
+
+    public HeavyHitters(@Value("${stats.heavy-hitters.window-seconds:60}") int windowSeconds,
+                        @Value("${stats.heavy-hitters.slots:6}") int slots,
+                        @Value("${stats.heavy-hitters.capacity:100}") int capacity,
+                        @Value("${stats.heavy-hitters.relative-error:0.001}") double relativeError,
+                        @Value("${stats.heavy-hitters.confidence:0.99}") double confidence) {
+        if (windowSeconds <= 0 || slots <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Окно, число слотов и ёмкость трекера должны быть положительными");
+        }
+        this.uris = new HeavyHitterTracker(windowSeconds * 1000L, slots, capacity,
+                () -> CountMinSketch.forError(relativeError, confidence));
+        this.ips = new HeavyHitterTracker(windowSeconds * 1000L, slots, capacity,
+                () -> CountMinSketch.forError(relativeError, confidence));
+    }
+
+    public void record(EndpointHitDto hit) {
+        long now = System.currentTimeMillis();
+        uris.add(hit.getUri(), now);
+        ips.add(hit.getIp(), now);
+    }
+
+    public void record(List<EndpointHitDto> hits) {
+        hits.forEach(this::record);
+    }
+
+    public List<HeavyHitter> getUris(int limit) {
+        return uris.top(limit, System.currentTimeMillis());
+    }
+
+    public List<HeavyHitter> getIps(int limit) {
+        return ips.top(limit, System.currentTimeMillis());
+    }
+}
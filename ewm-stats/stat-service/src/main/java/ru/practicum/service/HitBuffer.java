@@ -0,0 +1,138 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.exception.IngestOverloadException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@ConditionalOnExpression("${stats.ingest.async.enabled:false} and '${stats.storage:postgres}' == 'postgres'")
+public class HitBuffer {
+
+    public enum OverflowPolicy {
+        CALLER_RUNS,
+        DROP,
+        REJECT
+    }
+
+    private final HitWriter hitWriter;
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final Counter flushedCounter;
+    private final Counter droppedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public HitBuffer(HitWriter hitWriter,
+                     MeterRegistry meterRegistry,
+                     @Value("${stats.ingest.async.capacity:10000}") int capacity,
+                     @Value("${stats.ingest.async.flush-size:500}") int flushSize,
+                     @Value("${stats.ingest.async.flush-interval-ms:1000}") long flushIntervalMs,
+                     @Value("${stats.ingest.async.overflow-policy:CALLER_RUNS}") OverflowPolicy overflowPolicy) {
+        this.hitWriter = hitWriter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        Gauge.builder("stats.ingest.buffer.size", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("stats.ingest.buffer.capacity", () -> capacity).register(meterRegistry);
+        this.flushedCounter = meterRegistry.counter("stats.ingest.buffer.flushed");
+        this.droppedCounter = meterRegistry.counter("stats.ingest.buffer.dropped");
+        this.rejectedCounter = meterRegistry.counter("stats.ingest.buffer.rejected");
+        this.failedCounter = meterRegistry.counter("stats.ingest.buffer.failed");
+        this.flusher = new Thread(this::runFlusher, "hit-buffer-flusher");
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(flushIntervalMs * 2);
+        List<EndpointHitDto> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        flush(rest);
+    }
+
+    public void add(EndpointHitDto hit) {
+        if (queue.offer(hit)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP:
+                droppedCounter.increment();
+                log.warn("Буфер статистики переполнен, запрос {} отброшен", hit.getUri());
+                break;
+            case REJECT:
+                rejectedCounter.increment();
+                throw new IngestOverloadException("Буфер статистики переполнен");
+            default:
+                hitWriter.write(List.of(hit));
+        }
+    }
+
+    private void runFlusher() {
+        List<EndpointHitDto> batch = new ArrayList<>(flushSize);
+        while (running) {
+            try {
+                EndpointHitDto first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < flushSize) {
+                    queue.drainTo(batch, flushSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= flushSize || remaining <= 0) {
+                        break;
+                    }
+                    EndpointHitDto next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<EndpointHitDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            hitWriter.write(batch);
+            flushedCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            log.error("Не удалось сохранить {} запросов из буфера статистики", batch.size(), e);
+        }
+    }
+}
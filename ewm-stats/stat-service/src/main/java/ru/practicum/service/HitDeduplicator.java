@@ -0,0 +1,77 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointHitDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+public class HitDeduplicator {
+
+    private final Cache<String, Boolean> recentKeys;
+    private final Counter cachedCounter;
+    private final Counter rejectedCounter;
+
+    public HitDeduplicator(MeterRegistry meterRegistry,
+                           @Value("${stats.dedup.cache-size:100000}") long cacheSize,
+                           @Value("${stats.dedup.cache-ttl-minutes:60}") long cacheTtlMinutes) {
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recentKeys, "dedup");
+        this.cachedCounter = meterRegistry.counter("stats.ingest.duplicates", "stage", "cache");
+        this.rejectedCounter = meterRegistry.counter("stats.ingest.duplicates", "stage", "database");
+    }
+
+    public boolean isRecent(EndpointHitDto hit) {
+        String key = key(hit);
+        if (key != null && recentKeys.getIfPresent(key) != null) {
+            cachedCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public List<EndpointHitDto> filter(List<EndpointHitDto> hits) {
+        List<EndpointHitDto> accepted = new ArrayList<>(hits.size());
+        Set<String> seen = new HashSet<>();
+        for (EndpointHitDto hit : hits) {
+            String key = key(hit);
+            if (key == null || recentKeys.getIfPresent(key) == null && seen.add(key)) {
+                accepted.add(hit);
+            }
+        }
+        cachedCounter.increment(hits.size() - accepted.size());
+        return accepted.size() == hits.size() ? hits : accepted;
+    }
+
+    public void remember(Collection<EndpointHitDto> hits) {
+        for (EndpointHitDto hit : hits) {
+            String key = key(hit);
+            if (key != null) {
+                recentKeys.put(key, Boolean.TRUE);
+            }
+        }
+    }
+
+    public void rejected(int count) {
+        rejectedCounter.increment(count);
+    }
+
+    private static String key(EndpointHitDto hit) {
+        return hit.getDedupKey() != null ? hit.getDedupKey() + '@' + hit.getTimestamp() : null;
+    }
+}
@@ -0,0 +1,225 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.ImportResult;
+import ru.practicum.exception.BadRequestException;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class HitImporter {
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int CSV_FIELDS = 4;
+    private static final int CSV_FIELDS_WITH_KEY = 5;
+
+    public enum Format {
+        NDJSON,
+        CSV;
+
+        public static Format of(MediaType contentType) {
+            if (contentType != null && contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return NDJSON;
+            }
+            if (contentType != null && contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))) {
+                return CSV;
+            }
+            throw new BadRequestException("Неподдерживаемый формат импорта: " + contentType);
+        }
+    }
+
+    private final StatService statService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final long progressInterval;
+
+    public HitImporter(StatService statService,
+                       ObjectMapper objectMapper,
+                       Validator validator,
+                       @Value("${stats.import.chunk-size:50000}") int chunkSize,
+                       @Value("${stats.import.progress-interval:1000000}") long progressInterval) {
+        this.statService = statService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.progressInterval = progressInterval;
+    }
+
+    public ImportResult importHits(BufferedReader reader, Format format, long offset) throws IOException {
+        Session session = open(format, offset);
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                session.accept(line);
+            }
+        } catch (IOException e) {
+            session.abort(e);
+            throw e;
+        }
+        return session.finish();
+    }
+
+    public Session open(Format format, long offset) {
+        log.info("Импорт {}: пропуск первых {} записей", format, offset);
+        return new Session(format, offset);
+    }
+
+    public class Session {
+        private final Format format;
+        private final long offset;
+        private final long startedAt = System.nanoTime();
+        private final List<EndpointHitDto> chunk = new ArrayList<>(chunkSize);
+        private long lines;
+        private long records;
+        private long imported;
+        private long nextProgress = progressInterval;
+
+        private Session(Format format, long offset) {
+            this.format = format;
+            this.offset = offset;
+        }
+
+        public void accept(String line) {
+            lines++;
+            if (line.isBlank() || format == Format.CSV && records == 0 && isCsvHeader(line)) {
+                return;
+            }
+            records++;
+            if (records <= offset) {
+                return;
+            }
+            EndpointHitDto hit;
+            try {
+                hit = parse(line);
+            } catch (BadRequestException e) {
+                flush();
+                throw new BadRequestException(String.format("строка %d: %s. Загружено записей: %d, " +
+                        "продолжить можно с offset=%d", lines, e.getMessage(), imported, records - 1));
+            }
+            chunk.add(hit);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        public ImportResult finish() {
+            flush();
+            log.info("Импорт {} завершён: загружено {} записей, пропущено {}, offset={}, {} записей/с", format,
+                    imported, skipped(), records, rate());
+            return new ImportResult(imported, skipped(), records);
+        }
+
+        public void abort(Throwable e) {
+            log.warn("Импорт {} прерван: загружено {} записей, продолжить можно с offset={}: {}", format, imported,
+                    offset + imported, e.getMessage());
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            statService.importStats(chunk);
+            imported += chunk.size();
+            chunk.clear();
+            if (imported >= nextProgress) {
+                log.info("Импорт {}: загружено {} записей, offset={}, {} записей/с", format, imported,
+                        offset + imported, rate());
+                nextProgress += progressInterval;
+            }
+        }
+
+        private long skipped() {
+            return Math.min(offset, records);
+        }
+
+        private long rate() {
+            long elapsed = System.nanoTime() - startedAt;
+            return elapsed > 0 ? imported * 1_000_000_000L / elapsed : 0;
+        }
+
+        private EndpointHitDto parse(String line) {
+            EndpointHitDto hit = format == Format.NDJSON ? parseJson(line) : parseCsv(line);
+            Set<ConstraintViolation<EndpointHitDto>> violations = validator.validate(hit);
+            if (!violations.isEmpty()) {
+                throw new BadRequestException(violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .collect(Collectors.joining(", ")));
+            }
+            return hit;
+        }
+
+        private EndpointHitDto parseJson(String line) {
+            try {
+                return objectMapper.readValue(line, EndpointHitDto.class);
+            } catch (JsonProcessingException e) {
+                throw new BadRequestException(e.getOriginalMessage());
+            }
+        }
+
+        private EndpointHitDto parseCsv(String line) {
+            List<String> fields = splitCsv(line);
+            if (fields.size() != CSV_FIELDS && fields.size() != CSV_FIELDS_WITH_KEY) {
+                throw new BadRequestException("ожидаются поля app,uri,ip,timestamp[,dedup_key]");
+            }
+            LocalDateTime timestamp;
+            try {
+                timestamp = LocalDateTime.parse(fields.get(3), TIMESTAMP_FORMAT);
+            } catch (DateTimeParseException e) {
+                throw new BadRequestException("некорректная дата " + fields.get(3));
+            }
+            String dedupKey = fields.size() == CSV_FIELDS_WITH_KEY && !fields.get(4).isEmpty() ? fields.get(4) : null;
+            return new EndpointHitDto(null, fields.get(0), fields.get(1), fields.get(2), timestamp, dedupKey);
+        }
+    }
+
+    private static boolean isCsvHeader(String line) {
+        List<String> fields = splitCsv(line);
+        return !fields.isEmpty() && "app".equalsIgnoreCase(fields.get(0).trim());
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(CSV_FIELDS_WITH_KEY);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
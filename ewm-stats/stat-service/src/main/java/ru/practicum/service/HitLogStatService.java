@@ -0,0 +1,102 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.TimeSeries;
+import ru.practicum.ViewStats;
+import ru.practicum.hitlog.HitLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Service
+@ConditionalOnProperty(name = "stats.storage", havingValue = "hitlog")
+@RequiredArgsConstructor
+public class HitLogStatService implements StatService {
+
+    private final HitLog hitLog;
+    private final StatsMetrics statsMetrics;
+    private final HitDeduplicator deduplicator;
+
+    @Override
+    public EndpointHitDto saveStat(EndpointHitDto dto) {
+        if (deduplicator.isRecent(dto)) {
+            return dto;
+        }
+        Timer.Sample sample = statsMetrics.start();
+        long id = hitLog.append(dto);
+        deduplicator.remember(List.of(dto));
+        statsMetrics.ingested(sample, "single", 1);
+        return new EndpointHitDto(id, dto.getApp(), dto.getUri(), dto.getIp(), dto.getTimestamp(), dto.getDedupKey());
+    }
+
+    @Override
+    public void saveStats(List<EndpointHitDto> dtos) {
+        append(dtos, "batch");
+    }
+
+    @Override
+    public void importStats(List<EndpointHitDto> dtos) {
+        append(dtos, "import");
+    }
+
+    private void append(List<EndpointHitDto> dtos, String mode) {
+        List<EndpointHitDto> accepted = deduplicator.filter(dtos);
+        Timer.Sample sample = statsMetrics.start();
+        hitLog.append(accepted);
+        deduplicator.remember(accepted);
+        statsMetrics.ingested(sample, mode, accepted.size());
+    }
+
+    @Override
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                    Boolean exact) {
+        List<ViewStats> stats = new ArrayList<>();
+        streamStats(start, end, uris, unique, exact, stats::add);
+        stats.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return stats;
+    }
+
+    @Override
+    public List<ViewStats> getTop(LocalDateTime start, LocalDateTime end, int limit, String app, String uriPrefix,
+                                  Boolean unique, Boolean exact) {
+        StatsMetrics.Query query = statsMetrics.query("top", unique, null);
+        TopStats top = new TopStats(limit);
+        Consumer<ViewStats> consumer = query.counting(stat -> {
+            if (app == null || app.equals(stat.getApp())) {
+                top.accept(stat);
+            }
+        });
+        if (uriPrefix != null && !uriPrefix.isEmpty()) {
+            hitLog.getStatsByPrefix(start, end, uriPrefix, unique, exact, consumer);
+        } else {
+            hitLog.getStats(start, end, null, unique, exact, consumer);
+        }
+        query.stop("hitlog");
+        return top.toList();
+    }
+
+    @Override
+    public List<TimeSeries> getTimeSeries(LocalDateTime start, LocalDateTime end, List<String> uris, Duration step) {
+        StatsMetrics.Query query = statsMetrics.query("timeseries", false, uris);
+        List<TimeSeries> series = hitLog.getTimeSeries(start, end, uris, TimeSeriesPlan.of(start, end, step));
+        query.rows(series.size());
+        query.stop("hitlog");
+        return series;
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                            Boolean exact, Consumer<ViewStats> consumer) {
+        StatsMetrics.Query query = statsMetrics.query("stats", unique, uris);
+        hitLog.getStats(start, end, uris, unique, exact, query.counting(consumer));
+        query.stop("hitlog");
+    }
+}
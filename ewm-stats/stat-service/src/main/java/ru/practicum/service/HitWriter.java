@@ -0,0 +1,137 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.repository.EncodedHit;
+import ru.practicum.repository.HitDictionary;
+import ru.practicum.repository.HitJdbcRepository;
+import ru.practicum.repository.RollupRepository;
+import ru.practicum.repository.UriCounterRepository;
+import ru.practicum.utils.IpAddresses;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Service
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+public class HitWriter {
+
+    private final HitDictionary dictionary;
+    private final HitJdbcRepository hitJdbcRepository;
+    private final RollupRepository rollupRepository;
+    private final UriCounterRepository uriCounterRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Optional<SketchBuffer> sketchBuffer;
+    private final Optional<StatsCache> statsCache;
+    private final StatsMetrics statsMetrics;
+    private final HitDeduplicator deduplicator;
+
+    public HitWriter(HitDictionary dictionary,
+                     HitJdbcRepository hitJdbcRepository,
+                     RollupRepository rollupRepository,
+                     UriCounterRepository uriCounterRepository,
+                     TransactionTemplate transactionTemplate,
+                     Optional<SketchBuffer> sketchBuffer,
+                     Optional<StatsCache> statsCache,
+                     StatsMetrics statsMetrics,
+                     HitDeduplicator deduplicator) {
+        this.dictionary = dictionary;
+        this.hitJdbcRepository = hitJdbcRepository;
+        this.rollupRepository = rollupRepository;
+        this.uriCounterRepository = uriCounterRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.sketchBuffer = sketchBuffer;
+        this.statsCache = statsCache;
+        this.statsMetrics = statsMetrics;
+        this.deduplicator = deduplicator;
+    }
+
+    public long write(EndpointHitDto hit) {
+        if (deduplicator.isRecent(hit)) {
+            return 0;
+        }
+        Timer.Sample sample = statsMetrics.start();
+        EncodedHit encoded = encode(hit);
+        Long id = transactionTemplate.execute(status -> {
+            Long savedId = hitJdbcRepository.save(encoded);
+            if (savedId != null) {
+                writeAggregates(List.of(encoded));
+            }
+            return savedId;
+        });
+        deduplicator.remember(List.of(hit));
+        if (id == null) {
+            deduplicator.rejected(1);
+            return 0;
+        }
+        statsMetrics.written(sample, 1);
+        sketchBuffer.ifPresent(buffer -> buffer.add(List.of(encoded)));
+        statsCache.ifPresent(cache -> cache.invalidate(List.of(hit)));
+        return id;
+    }
+
+    public void write(List<EndpointHitDto> hits) {
+        writeAll(hits, hitJdbcRepository::saveAll);
+    }
+
+    public void copy(List<EndpointHitDto> hits) {
+        writeAll(hits, hitJdbcRepository::copyAll);
+    }
+
+    private void writeAll(List<EndpointHitDto> hits, Consumer<List<EncodedHit>> insert) {
+        List<EndpointHitDto> accepted = deduplicator.filter(hits);
+        if (accepted.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = statsMetrics.start();
+        List<EncodedHit> plain = new ArrayList<>(accepted.size());
+        List<EncodedHit> keyed = new ArrayList<>();
+        for (EndpointHitDto hit : accepted) {
+            EncodedHit encoded = encode(hit);
+            if (encoded.getDedupKey() != null) {
+                keyed.add(encoded);
+            } else {
+                plain.add(encoded);
+            }
+        }
+        List<EncodedHit> written = transactionTemplate.execute(status -> {
+            List<EncodedHit> saved = plain;
+            if (!plain.isEmpty()) {
+                insert.accept(plain);
+            }
+            if (!keyed.isEmpty()) {
+                saved = new ArrayList<>(plain);
+                saved.addAll(hitJdbcRepository.saveAllKeyed(keyed));
+            }
+            writeAggregates(saved);
+            return saved;
+        });
+        deduplicator.remember(accepted);
+        int rejected = accepted.size() - (written != null ? written.size() : 0);
+        if (rejected > 0) {
+            deduplicator.rejected(rejected);
+        }
+        statsMetrics.written(sample, accepted.size());
+        if (written != null) {
+            sketchBuffer.ifPresent(buffer -> buffer.add(written));
+        }
+        statsCache.ifPresent(cache -> cache.invalidate(accepted));
+    }
+
+    private EncodedHit encode(EndpointHitDto hit) {
+        return new EncodedHit(dictionary.appId(hit.getApp()), dictionary.uriId(hit.getUri()),
+                IpAddresses.toBytes(hit.getIp()), hit.getTimestamp().truncatedTo(ChronoUnit.MICROS),
+                hit.getDedupKey());
+    }
+
+    private void writeAggregates(List<EncodedHit> hits) {
+        rollupRepository.increment(hits);
+        uriCounterRepository.increment(hits);
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@ConditionalOnExpression("${stats.query.parallel.enabled:true} and '${stats.storage:postgres}' == 'postgres'")
+public class ParallelQueryExecutor {
+    private final ExecutorService executor;
+    private final int threads;
+    private final long minChunkSeconds;
+    private final Semaphore connections;
+
+    public ParallelQueryExecutor(@Value("${stats.query.parallel.threads:4}") int threads,
+                                 @Value("${stats.query.parallel.min-chunk-days:30}") int minChunkDays,
+                                 @Value("${stats.query.parallel.max-connections:"
+                                         + "${spring.datasource.hikari.maximum-pool-size:10}}") int maxConnections) {
+        if (threads <= 0 || minChunkDays <= 0 || maxConnections <= 0) {
+            throw new IllegalArgumentException("Параметры параллельных запросов должны быть положительными");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stats-query-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threads = threads;
+        this.minChunkSeconds = Duration.ofDays(minChunkDays).getSeconds();
+        this.connections = new Semaphore(maxConnections);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public List<LocalDateTime> split(LocalDateTime start, LocalDateTime end) {
+        List<LocalDateTime> bounds = new ArrayList<>();
+        bounds.add(start);
+        long seconds = Duration.between(start, end).getSeconds();
+        long chunks = Math.min(threads, seconds / minChunkSeconds);
+        if (chunks > 1) {
+            long step = (seconds + chunks - 1) / chunks;
+            for (int i = 1; i < chunks; i++) {
+                bounds.add(start.plusSeconds(step * i));
+            }
+        }
+        bounds.add(end);
+        return bounds;
+    }
+
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        int permits = Math.min(tasks.size(), threads) + 1;
+        if (!connections.tryAcquire(permits)) {
+            return runInline(tasks);
+        }
+        try {
+            return submitAll(tasks);
+        } finally {
+            connections.release(permits);
+        }
+    }
+
+    private <T> List<T> runInline(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            try {
+                results.add(task.call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Ошибка параллельного запроса статистики", e);
+            }
+        }
+        return results;
+    }
+
+    private <T> List<T> submitAll(List<Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Параллельный запрос статистики прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Ошибка параллельного запроса статистики", e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
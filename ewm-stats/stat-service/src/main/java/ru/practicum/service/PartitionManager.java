@@ -0,0 +1,131 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.CompactionHorizons;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+public class PartitionManager {
+    private static final String DEFAULT_PARTITION = "endpoint_hits_default";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern PARTITION_NAME = Pattern.compile("endpoint_hits_(\\d{8})_(\\d{8})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CompactionHorizons horizons;
+    private final ChronoUnit interval;
+    private final int ahead;
+    private final int rawRetentionDays;
+
+    public PartitionManager(JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            CompactionHorizons horizons,
+                            @Value("${stats.partitions.interval:MONTHS}") ChronoUnit interval,
+                            @Value("${stats.partitions.ahead:2}") int ahead,
+                            @Value("${stats.compaction.raw-retention-days:0}") int rawRetentionDays,
+                            @Value("${stats.hll.enabled:true}") boolean hllEnabled) {
+        if (interval != ChronoUnit.DAYS && interval != ChronoUnit.MONTHS) {
+            throw new IllegalArgumentException("Секционирование поддерживается только по DAYS или MONTHS");
+        }
+        if (rawRetentionDays > 0 && !hllEnabled) {
+            throw new IllegalArgumentException("Удаление сырых секций требует stats.hll.enabled=true");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.horizons = horizons;
+        this.interval = interval;
+        this.ahead = ahead;
+        this.rawRetentionDays = rawRetentionDays;
+    }
+
+    public void createDefaultPartition() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF endpoint_hits DEFAULT");
+    }
+
+    @Scheduled(cron = "${stats.partitions.maintenance-cron:0 5 * * * *}")
+    public void maintain() {
+        LocalDateTime current = periodStart(LocalDateTime.now());
+        for (int i = 0; i <= ahead; i++) {
+            ensurePartition(current.plus(i, interval));
+        }
+        ensurePartitionsFor(DEFAULT_PARTITION);
+        dropExpiredPartitions();
+    }
+
+    public void ensurePartitionsFor(String table) {
+        String unit = interval == ChronoUnit.DAYS ? "day" : "month";
+        List<LocalDateTime> periods = jdbcTemplate.queryForList("SELECT DISTINCT date_trunc('" + unit +
+                "', hit_timestamp::timestamp) FROM " + table, LocalDateTime.class);
+        periods.forEach(this::ensurePartition);
+    }
+
+    private void ensurePartition(LocalDateTime from) {
+        LocalDateTime to = from.plus(1, interval);
+        String name = "endpoint_hits_" + from.format(NAME_FORMAT) + "_" + to.format(NAME_FORMAT);
+        String exists = jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, name);
+        if (exists != null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("CREATE TABLE " + name +
+                        " (LIKE endpoint_hits INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM " + DEFAULT_PARTITION +
+                        " WHERE hit_timestamp >= ? AND hit_timestamp < ?", from, to);
+                jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION +
+                        " WHERE hit_timestamp >= ? AND hit_timestamp < ?", from, to);
+                jdbcTemplate.execute("ALTER TABLE endpoint_hits ATTACH PARTITION " + name + " FOR VALUES FROM ('" +
+                        from.format(BOUND_FORMAT) + "') TO ('" + to.format(BOUND_FORMAT) + "')");
+            });
+            log.info("Создана секция {}", name);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось создать секцию {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void dropExpiredPartitions() {
+        if (rawRetentionDays <= 0) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(rawRetentionDays);
+        List<String> partitions = jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'endpoint_hits'::regclass", String.class);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            LocalDate to = LocalDate.parse(matcher.group(2), NAME_FORMAT);
+            if (!to.isAfter(cutoff)) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    horizons.advance(CompactionHorizons.RAW, to.atStartOfDay());
+                    jdbcTemplate.execute("DROP TABLE " + partition);
+                });
+                log.info("Удалена устаревшая секция {}", partition);
+            }
+        }
+    }
+
+    private LocalDateTime periodStart(LocalDateTime time) {
+        LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+        return interval == ChronoUnit.DAYS ? day : day.withDayOfMonth(1);
+    }
+}
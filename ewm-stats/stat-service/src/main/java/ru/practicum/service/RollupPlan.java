@@ -0,0 +1,68 @@
+package ru.practicum.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class RollupPlan {
+    private final LocalDateTime start;
+    private final LocalDateTime fineStart;
+    private final LocalDateTime coarseStart;
+    private final LocalDateTime coarseEnd;
+    private final LocalDateTime fineEnd;
+    private final LocalDateTime end;
+
+    public static RollupPlan of(LocalDateTime start, LocalDateTime end, ChronoUnit fine, ChronoUnit coarse) {
+        return of(start, end, fine, coarse, LocalDateTime.MIN, LocalDateTime.MIN);
+    }
+
+    public static RollupPlan of(LocalDateTime start, LocalDateTime end, ChronoUnit fine, ChronoUnit coarse,
+                                LocalDateTime rawHorizon, LocalDateTime fineHorizon) {
+        LocalDateTime fineStart;
+        LocalDateTime coarseStart;
+        if (start.isBefore(fineHorizon)) {
+            fineStart = start.truncatedTo(coarse);
+            coarseStart = fineStart;
+        } else {
+            fineStart = start.isBefore(rawHorizon) ? start.truncatedTo(fine) : ceil(start, fine);
+            coarseStart = ceil(fineStart, coarse);
+        }
+        LocalDateTime fineEnd;
+        LocalDateTime coarseEnd;
+        if (end.isBefore(fineHorizon)) {
+            fineEnd = end.truncatedTo(coarse).plus(1, coarse);
+            coarseEnd = fineEnd;
+        } else {
+            fineEnd = end.isBefore(rawHorizon) ? end.truncatedTo(fine).plus(1, fine) : end.truncatedTo(fine);
+            coarseEnd = fineEnd.truncatedTo(coarse);
+        }
+        if (!fineStart.isBefore(fineEnd)) {
+            return new RollupPlan(start, start, start, start, start, end);
+        }
+        if (!coarseStart.isBefore(coarseEnd)) {
+            return new RollupPlan(start, fineStart, fineEnd, fineEnd, fineEnd, end);
+        }
+        return new RollupPlan(start, fineStart, coarseStart, coarseEnd, fineEnd, end);
+    }
+
+    public static LocalDateTime historyStart(LocalDateTime start, LocalDateTime dayHorizon) {
+        return start.isBefore(dayHorizon) ? start.truncatedTo(ChronoUnit.DAYS) : start;
+    }
+
+    public static LocalDateTime historyEnd(LocalDateTime start, LocalDateTime end, LocalDateTime dayHorizon) {
+        if (!start.isBefore(dayHorizon)) {
+            return start;
+        }
+        return end.isBefore(dayHorizon) ? end.truncatedTo(ChronoUnit.DAYS).plusDays(1) : dayHorizon;
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime truncated = time.truncatedTo(unit);
+        return truncated.equals(time) ? time : truncated.plus(1, unit);
+    }
+}
@@ -0,0 +1,150 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.CompactionHorizons;
+import ru.practicum.repository.HitDictionary;
+import ru.practicum.utils.IpAddresses;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+@RequiredArgsConstructor
+public class SchemaManager {
+    private static final String LEGACY_SUFFIX = "_legacy";
+    private static final List<String> RAW_TABLES = List.of("endpoint_hits");
+    private static final List<String> COUNTER_TABLES = List.of("hits_minute", "hits_hour", "hits_day");
+    private static final List<String> SKETCH_TABLES = List.of("visitors_hour", "visitors_day");
+    private static final String IPV4_OCTET = "(25[0-5]|2[0-4][0-9]|1[0-9][0-9]|[1-9]?[0-9])";
+    private static final String IPV4_TO_BYTES = "CASE WHEN l.ip ~ '^(" + IPV4_OCTET + "\\.){3}" + IPV4_OCTET + "$' " +
+            "THEN '\\x00000000000000000000ffff'::bytea || " +
+            "decode(lpad(to_hex(l.ip::inet - '0.0.0.0'::inet), 8, '0'), 'hex') " +
+            "ELSE convert_to(l.ip, 'UTF8') END";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionManager partitionManager;
+    private final HitDictionary dictionary;
+    private final CompactionHorizons horizons;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> legacy = new ArrayList<>();
+            for (String table : allTables()) {
+                if (hasTextColumns(table)) {
+                    renameLegacy(table);
+                    legacy.add(table);
+                }
+            }
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(jdbcTemplate.getDataSource());
+            partitionManager.createDefaultPartition();
+            if (!legacy.isEmpty()) {
+                migrateLegacy(legacy);
+            }
+            backfillCounters();
+        });
+        partitionManager.maintain();
+        dictionary.load();
+        horizons.load();
+    }
+
+    private List<String> allTables() {
+        List<String> tables = new ArrayList<>(RAW_TABLES);
+        tables.addAll(COUNTER_TABLES);
+        tables.addAll(SKETCH_TABLES);
+        return tables;
+    }
+
+    private boolean hasTextColumns(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 " +
+                "FROM information_schema.columns WHERE table_schema = current_schema() " +
+                "AND table_name = ? AND column_name = 'app')", Boolean.class, table));
+    }
+
+    private void renameLegacy(String table) {
+        List<String> relations = new ArrayList<>(List.of(table));
+        relations.addAll(jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = ?::regclass", String.class, table));
+        for (String relation : relations) {
+            List<String> indexes = jdbcTemplate.queryForList("SELECT indexname::text FROM pg_indexes " +
+                    "WHERE schemaname = current_schema() AND tablename = ?", String.class, relation);
+            for (String index : indexes) {
+                jdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO " + index + LEGACY_SUFFIX);
+            }
+            jdbcTemplate.execute("ALTER TABLE " + relation + " RENAME TO " + relation + LEGACY_SUFFIX);
+        }
+    }
+
+    private void migrateLegacy(List<String> legacy) {
+        log.info("Перенос таблиц {} на словарное хранение app/uri/ip", legacy);
+        for (String table : legacy) {
+            jdbcTemplate.update("INSERT INTO apps (name) SELECT DISTINCT app FROM " + table + LEGACY_SUFFIX +
+                    " ON CONFLICT (name) DO NOTHING");
+            jdbcTemplate.update("INSERT INTO uris (name) SELECT DISTINCT uri FROM " + table + LEGACY_SUFFIX +
+                    " ON CONFLICT (name) DO NOTHING");
+        }
+        String join = " l JOIN apps a ON a.name = l.app JOIN uris u ON u.name = l.uri";
+        for (String table : legacy) {
+            String source = table + LEGACY_SUFFIX;
+            if (RAW_TABLES.contains(table)) {
+                partitionManager.ensurePartitionsFor(source);
+                jdbcTemplate.update("INSERT INTO endpoint_hits (hit_id, app_id, uri_id, ip, hit_timestamp) " +
+                        "SELECT l.hit_id, a.app_id, u.uri_id, " + IPV4_TO_BYTES + ", l.hit_timestamp FROM " +
+                        source + join);
+                convertRemainingIps();
+                jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('endpoint_hits', 'hit_id'), " +
+                        "COALESCE((SELECT MAX(hit_id) FROM endpoint_hits), 0) + 1, false)", Long.class);
+            } else {
+                String value = COUNTER_TABLES.contains(table) ? "hits" : "sketch";
+                jdbcTemplate.update("INSERT INTO " + table + " (bucket, app_id, uri_id, " + value + ") " +
+                        "SELECT l.bucket, a.app_id, u.uri_id, l." + value + " FROM " + source + join);
+            }
+            jdbcTemplate.execute("DROP TABLE " + source);
+        }
+    }
+
+    private void convertRemainingIps() {
+        List<Object[]> updates = new ArrayList<>();
+        jdbcTemplate.query("SELECT hit_id, hit_timestamp, ip FROM endpoint_hits WHERE length(ip) <> ?", rs -> {
+            byte[] ip = IpAddresses.toBytes(new String(rs.getBytes("ip"), StandardCharsets.UTF_8));
+            if (ip.length == IpAddresses.LENGTH) {
+                updates.add(new Object[]{ip, rs.getLong("hit_id"), rs.getObject("hit_timestamp")});
+            }
+        }, IpAddresses.LENGTH);
+        jdbcTemplate.batchUpdate("UPDATE endpoint_hits SET ip = ? WHERE hit_id = ? AND hit_timestamp = ?", updates);
+    }
+
+    private void backfillCounters() {
+        jdbcTemplate.update("INSERT INTO hits_minute (bucket, app_id, uri_id, hits) " +
+                "SELECT date_trunc('minute', hit_timestamp::timestamp), app_id, uri_id, COUNT(*) FROM endpoint_hits " +
+                "WHERE NOT EXISTS (SELECT 1 FROM hits_minute) GROUP BY 1, 2, 3");
+        jdbcTemplate.update("INSERT INTO hits_hour (bucket, app_id, uri_id, hits) " +
+                "SELECT date_trunc('hour', hit_timestamp::timestamp), app_id, uri_id, COUNT(*) FROM endpoint_hits " +
+                "WHERE NOT EXISTS (SELECT 1 FROM hits_hour) GROUP BY 1, 2, 3");
+        jdbcTemplate.update("INSERT INTO hits_day (bucket, app_id, uri_id, hits) " +
+                "SELECT date_trunc('day', bucket), app_id, uri_id, SUM(hits) FROM hits_hour " +
+                "WHERE NOT EXISTS (SELECT 1 FROM hits_day) GROUP BY 1, 2, 3");
+        jdbcTemplate.update("INSERT INTO uri_counters (app_id, uri_id, total_hits, first_hit, last_hit) " +
+                "SELECT d.app_id, d.uri_id, d.hits, " +
+                "CASE WHEN r.first_hit < d.first_day + interval '1 day' THEN r.first_hit ELSE d.first_day END, " +
+                "COALESCE(r.last_hit, d.last_day + interval '1 day' - interval '1 second') " +
+                "FROM (SELECT app_id, uri_id, SUM(hits) AS hits, MIN(bucket) AS first_day, MAX(bucket) AS last_day " +
+                "FROM hits_day GROUP BY app_id, uri_id) d " +
+                "LEFT JOIN (SELECT app_id, uri_id, MIN(hit_timestamp)::timestamp AS first_hit, " +
+                "MAX(hit_timestamp)::timestamp AS last_hit FROM endpoint_hits GROUP BY app_id, uri_id) r " +
+                "ON r.app_id = d.app_id AND r.uri_id = d.uri_id " +
+                "WHERE NOT EXISTS (SELECT 1 FROM uri_counters)");
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.EncodedHit;
+import ru.practicum.repository.SketchRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("${stats.hll.enabled:true} and '${stats.storage:postgres}' == 'postgres'")
+public class SketchBackfill implements ApplicationRunner {
+    private static final int CHUNK_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Boolean filled = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM visitors_hour) " +
+                "AND NOT EXISTS (SELECT 1 FROM uri_counters WHERE sketch IS NULL)", Boolean.class);
+        if (Boolean.TRUE.equals(filled)) {
+            return;
+        }
+        Thread thread = new Thread(this::backfill, "sketch-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void backfill() {
+        Boolean visitors = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM visitors_hour)", Boolean.class);
+        if (!Boolean.TRUE.equals(visitors)) {
+            backfillVisitors();
+        }
+        log.info("Заполнение скетчей уникальных посетителей за всё время по счётчикам URI");
+        long filled = 0;
+        int chunk = fillMissingTotals();
+        while (chunk > 0) {
+            filled += chunk;
+            log.info("Заполнение скетчей счётчиков URI: обработано {} URI", filled);
+            chunk = fillMissingTotals();
+        }
+        log.info("Заполнение скетчей счётчиков URI завершено: обработано {} URI", filled);
+    }
+
+    private int fillMissingTotals() {
+        Integer filled = transactionTemplate.execute(status -> sketchRepository.fillMissingTotals(CHUNK_SIZE));
+        return filled != null ? filled : 0;
+    }
+
+    private void backfillVisitors() {
+        List<LocalDateTime> hours = jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('hour', hit_timestamp::timestamp) FROM endpoint_hits ORDER BY 1",
+                LocalDateTime.class);
+        if (hours.isEmpty()) {
+            return;
+        }
+        log.info("Заполнение HyperLogLog-скетчей по {} часам истории", hours.size());
+        for (LocalDateTime hour : hours) {
+            List<EncodedHit> hits = jdbcTemplate.query(
+                    "SELECT app_id, uri_id, ip, hit_timestamp::timestamp AS ts FROM endpoint_hits " +
+                            "WHERE hit_timestamp >= ? AND hit_timestamp < ?",
+                    (rs, rowNum) -> new EncodedHit(rs.getInt("app_id"), rs.getInt("uri_id"),
+                            rs.getBytes("ip"), rs.getObject("ts", LocalDateTime.class), null),
+                    hour, hour.plusHours(1));
+            transactionTemplate.executeWithoutResult(status -> sketchRepository.merge(hits));
+        }
+        log.info("Заполнение HyperLogLog-скетчей завершено");
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.EncodedHit;
+import ru.practicum.repository.SketchKey;
+import ru.practicum.repository.SketchRepository;
+import ru.practicum.sketch.Hashing;
+import ru.practicum.sketch.HyperLogLog;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+@ConditionalOnExpression("${stats.hll.enabled:true} and '${stats.storage:postgres}' == 'postgres'")
+public class SketchBuffer {
+    private final SketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<SketchKey, HyperLogLog> hours = new ConcurrentHashMap<>();
+    private Map<SketchKey, HyperLogLog> totals = new ConcurrentHashMap<>();
+
+    public SketchBuffer(SketchRepository sketchRepository, TransactionTemplate transactionTemplate) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void add(List<EncodedHit> hits) {
+        lock.readLock().lock();
+        try {
+            for (EncodedHit hit : hits) {
+                long hash = Hashing.hash64(hit.getIp());
+                offer(hours, new SketchKey(hit.getTimestamp().truncatedTo(ChronoUnit.HOURS), hit.getAppId(),
+                        hit.getUriId()), hash);
+                offer(totals, new SketchKey(null, hit.getAppId(), hit.getUriId()), hash);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.hll.flush-interval-ms:1000}")
+    public void flush() {
+        Map<SketchKey, HyperLogLog> hourSketches;
+        Map<SketchKey, HyperLogLog> totalSketches;
+        lock.writeLock().lock();
+        try {
+            hourSketches = hours;
+            totalSketches = totals;
+            hours = new ConcurrentHashMap<>();
+            totals = new ConcurrentHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!hourSketches.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    sketchRepository.mergeHours(hourSketches);
+                    sketchRepository.mergeTotals(totalSketches);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Не удалось сохранить HyperLogLog-скетчи по {} часовым корзинам, повтор при следующем " +
+                        "сбросе: {}", hourSketches.size(), e.getMessage());
+                restore(hourSketches, totalSketches);
+                return;
+            }
+        }
+        rollUpDays(LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.DAYS));
+    }
+
+    public void rollUpDays(LocalDateTime until) {
+        LocalDateTime day = sketchRepository.nextDayToRollUp(until);
+        while (day != null) {
+            LocalDateTime current = day;
+            transactionTemplate.executeWithoutResult(status -> sketchRepository.rollUpDay(current));
+            log.info("Дневные HyperLogLog-скетчи за {} собраны из часовых", current.toLocalDate());
+            day = sketchRepository.nextDayToRollUp(until);
+        }
+        sketchRepository.markRolledUp(until);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    private void restore(Map<SketchKey, HyperLogLog> hourSketches, Map<SketchKey, HyperLogLog> totalSketches) {
+        lock.readLock().lock();
+        try {
+            hourSketches.forEach((key, sketch) -> hours.merge(key, sketch, HyperLogLog::merge));
+            totalSketches.forEach((key, sketch) -> totals.merge(key, sketch, HyperLogLog::merge));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void offer(Map<SketchKey, HyperLogLog> sketches, SketchKey key, long hash) {
+        sketches.compute(key, (k, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : sketchRepository.newSketch();
+            target.offerHash(hash);
+            return target;
+        });
+    }
+}
@@ -1,15 +1,32 @@
 package ru.practicum.service;
 
 import ru.practicum.EndpointHitDto;
+import ru.practicum.TimeSeries;
 import ru.practicum.ViewStats;
 
 import javax.transaction.Transactional;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatService {
-    @Transactional
+    @Transactional(Transactional.TxType.SUPPORTS)
     EndpointHitDto saveStat(EndpointHitDto dto);
 
-    List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique);
+    @Transactional(Transactional.TxType.SUPPORTS)
+    void saveStats(List<EndpointHitDto> dtos);
+
+    @Transactional(Transactional.TxType.SUPPORTS)
+    void importStats(List<EndpointHitDto> dtos);
+
+    List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact);
+
+    List<ViewStats> getTop(LocalDateTime start, LocalDateTime end, int limit, String app, String uriPrefix,
+                           Boolean unique, Boolean exact);
+
+    List<TimeSeries> getTimeSeries(LocalDateTime start, LocalDateTime end, List<String> uris, Duration step);
+
+    void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact,
+                     Consumer<ViewStats> consumer);
 }
\ No newline at end of file
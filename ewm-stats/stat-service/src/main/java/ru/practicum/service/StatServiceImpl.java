@@ -1,45 +1,188 @@
 package ru.practicum.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import ru.practicum.EndpointHit;
 import ru.practicum.EndpointHitDto;
+import ru.practicum.TimeSeries;
 import ru.practicum.ViewStats;
-import ru.practicum.repository.StatRepository;
+import ru.practicum.repository.CompactionHorizons;
+import ru.practicum.repository.HitDictionary;
+import ru.practicum.repository.HitJdbcRepository;
+import ru.practicum.repository.RollupRepository;
+import ru.practicum.repository.SketchRepository;
+import ru.practicum.repository.UriCounterRepository;
 
 import javax.transaction.Transactional;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
 @Transactional
 @RequiredArgsConstructor
 public class StatServiceImpl implements StatService {
 
-    private final StatRepository statRepository;
+    private final HitDictionary dictionary;
+    private final HitJdbcRepository hitJdbcRepository;
+    private final RollupRepository rollupRepository;
+    private final SketchRepository sketchRepository;
+    private final UriCounterRepository uriCounterRepository;
+    private final CompactionHorizons horizons;
+    private final HitWriter hitWriter;
+    private final Optional<HitBuffer> hitBuffer;
+    private final Optional<StatsCache> statsCache;
+    private final StatsMetrics statsMetrics;
+
+    @Value("${stats.hll.enabled:true}")
+    private boolean hllEnabled;
 
     @Override
-    @Transactional
+    @Transactional(Transactional.TxType.SUPPORTS)
     public EndpointHitDto saveStat(EndpointHitDto dto) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        return mapper.convertValue(
-                statRepository.save(mapper.convertValue(dto, EndpointHit.class)),
-                EndpointHitDto.class);
+        Timer.Sample sample = statsMetrics.start();
+        if (hitBuffer.isPresent()) {
+            hitBuffer.get().add(dto);
+            statsMetrics.ingested(sample, "buffered", 1);
+            return dto;
+        }
+        long id = hitWriter.write(dto);
+        statsMetrics.ingested(sample, "single", 1);
+        return new EndpointHitDto(id, dto.getApp(), dto.getUri(), dto.getIp(), dto.getTimestamp(),
+                dto.getDedupKey());
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public void saveStats(List<EndpointHitDto> dtos) {
+        Timer.Sample sample = statsMetrics.start();
+        hitWriter.write(dtos);
+        statsMetrics.ingested(sample, "batch", dtos.size());
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public void importStats(List<EndpointHitDto> dtos) {
+        Timer.Sample sample = statsMetrics.start();
+        hitWriter.copy(dtos);
+        statsMetrics.ingested(sample, "import", dtos.size());
     }
 
     @Override
-    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
-        if (uris == null || uris.isEmpty()) {
-            return new ArrayList<>(statRepository.getStatsAll(start, end));
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                    Boolean exact) {
+        if (statsCache.isPresent()) {
+            return statsCache.get().get(start, end, uris, unique, exact, key -> loadStats(key.getStart(),
+                    key.getEnd(), uris, key.isUnique(), key.isExact()));
+        }
+        return loadStats(start, end, uris, unique, exact);
+    }
+
+    private List<ViewStats> loadStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                      boolean exact) {
+        List<ViewStats> stats = new ArrayList<>();
+        streamStats(start, end, uris, unique, exact, stats::add);
+        stats.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return stats;
+    }
+
+    @Override
+    public List<ViewStats> getTop(LocalDateTime start, LocalDateTime end, int limit, String app, String uriPrefix,
+                                  Boolean unique, Boolean exact) {
+        Integer appId = null;
+        if (app != null) {
+            List<Integer> appIds = dictionary.findAppIds(List.of(app));
+            if (appIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+            appId = appIds.get(0);
+        }
+        List<Integer> uriIds = null;
+        if (uriPrefix != null && !uriPrefix.isEmpty()) {
+            uriIds = dictionary.findUriIdsByPrefix(uriPrefix);
+            if (uriIds.isEmpty()) {
+                return new ArrayList<>();
+            }
         }
-        if (unique) {
-            return new ArrayList<>(statRepository.getStatsUnique(start, end, uris));
+        StatsMetrics.Query query = statsMetrics.query("top", unique, uriIds);
+        List<ViewStats> stats;
+        String source;
+        if (!unique) {
+            stats = rollupRepository.getTop(start, end, uriIds, appId, limit);
+            query.rows(stats.size());
+            source = "rollup";
+        } else if (approximateUnique(start, exact)) {
+            TopStats top = new TopStats(limit);
+            sketchRepository.streamCardinalities(start, end, uriIds, query.counting(stat -> {
+                if (app == null || app.equals(stat.getApp())) {
+                    top.accept(stat);
+                }
+            }));
+            stats = top.toList();
+            source = "sketch";
         } else {
-            return new ArrayList<>(statRepository.getStats(start, end, uris));
+            stats = hitJdbcRepository.getTopUnique(start, end, uriIds, appId, limit);
+            query.rows(stats.size());
+            source = "exact";
         }
+        query.stop(source);
+        return stats;
+    }
+
+    @Override
+    public List<TimeSeries> getTimeSeries(LocalDateTime start, LocalDateTime end, List<String> uris, Duration step) {
+        TimeSeriesPlan plan = TimeSeriesPlan.of(start, end, step);
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        if (uriIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StatsMetrics.Query query = statsMetrics.query("timeseries", false, uriIds);
+        List<TimeSeries> series = rollupRepository.getTimeSeries(start, end, uriIds, plan);
+        query.rows(series.size());
+        query.stop("rollup");
+        return series;
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                            Boolean exact, Consumer<ViewStats> consumer) {
+        List<Integer> uriIds = null;
+        if (uris != null && !uris.isEmpty()) {
+            uriIds = dictionary.findUriIds(uris);
+            if (uriIds.isEmpty()) {
+                return;
+            }
+        }
+        StatsMetrics.Query query = statsMetrics.query("stats", unique, uriIds);
+        query.stop(queryStats(start, end, uriIds, unique, exact, query.counting(consumer)));
+    }
+
+    private String queryStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique,
+                              boolean exact, Consumer<ViewStats> consumer) {
+        if ((!unique || approximateUnique(start, exact))
+                && uriCounterRepository.streamTotals(start, end, uriIds, unique, consumer)) {
+            return "counters";
+        }
+        if (!unique) {
+            rollupRepository.streamStats(start, end, uriIds, consumer);
+            return "rollup";
+        }
+        if (approximateUnique(start, exact)) {
+            sketchRepository.streamCardinalities(start, end, uriIds, consumer);
+            return "sketch";
+        }
+        hitJdbcRepository.streamStatsUnique(start, end, uriIds, consumer);
+        return "exact";
+    }
+
+    private boolean approximateUnique(LocalDateTime start, boolean exact) {
+        return hllEnabled && (!exact || start.isBefore(horizons.getRaw()));
     }
 }
@@ -0,0 +1,226 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.ViewStats;
+import ru.practicum.utils.UriIndex;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+@Component
+@ConditionalOnExpression("${stats.cache.enabled:true} and '${stats.storage:postgres}' == 'postgres'")
+public class StatsCache {
+
+    private final Cache<StatsKey, List<ViewStats>> cache;
+    private final Map<StatsKey, Boolean> loading = new ConcurrentHashMap<>();
+    private final Map<String, Set<StatsKey>> byUri = new HashMap<>();
+    private final NavigableMap<LocalDateTime, Set<StatsKey>> broadByEnd = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long bucketSeconds;
+
+    public StatsCache(MeterRegistry meterRegistry,
+                      @Value("${stats.cache.maximum-rows:100000}") long maximumRows,
+                      @Value("${stats.cache.ttl-seconds:60}") long ttlSeconds,
+                      @Value("${stats.cache.bucket-seconds:60}") long bucketSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumRows)
+                .weigher((StatsKey key, List<ViewStats> stats) -> stats.size() + 1)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .executor(Runnable::run)
+                .removalListener((StatsKey key, List<ViewStats> stats, RemovalCause cause) -> unindex(key))
+                .build();
+        this.bucketSeconds = bucketSeconds;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "stats");
+    }
+
+    public List<ViewStats> get(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                               boolean exact, Function<StatsKey, List<ViewStats>> loader) {
+        StatsKey key = key(start, end, uris, unique, exact);
+        List<ViewStats> stats = cache.getIfPresent(key);
+        if (stats != null) {
+            return stats;
+        }
+        loading.put(key, Boolean.FALSE);
+        index(key);
+        try {
+            stats = List.copyOf(loader.apply(key));
+        } catch (RuntimeException e) {
+            loading.remove(key);
+            unindex(key);
+            throw e;
+        }
+        if (Boolean.FALSE.equals(loading.remove(key))) {
+            cache.put(key, stats);
+        } else {
+            unindex(key);
+        }
+        return stats;
+    }
+
+    public void invalidate(Collection<EndpointHitDto> hits) {
+        Map<String, LocalDateTime[]> ranges = new HashMap<>();
+        LocalDateTime[] total = null;
+        for (EndpointHitDto hit : hits) {
+            extend(ranges.computeIfAbsent(hit.getUri(), uri -> new LocalDateTime[2]), hit.getTimestamp());
+            total = extend(total == null ? new LocalDateTime[2] : total, hit.getTimestamp());
+        }
+        if (total == null) {
+            return;
+        }
+        List<StatsKey> affected = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, LocalDateTime[]> range : ranges.entrySet()) {
+                collect(byUri.get(range.getKey()), ranges, total, affected);
+            }
+            for (Set<StatsKey> keys : broadByEnd.tailMap(total[0], true).values()) {
+                collect(keys, ranges, total, affected);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (StatsKey key : affected) {
+            loading.computeIfPresent(key, (k, dirty) -> Boolean.TRUE);
+            cache.invalidate(key);
+        }
+    }
+
+    private static void collect(Set<StatsKey> keys, Map<String, LocalDateTime[]> ranges, LocalDateTime[] all,
+                                List<StatsKey> affected) {
+        if (keys == null) {
+            return;
+        }
+        for (StatsKey key : keys) {
+            if (key.isAffectedBy(ranges, all)) {
+                affected.add(key);
+            }
+        }
+    }
+
+    private void index(StatsKey key) {
+        lock.lock();
+        try {
+            if (key.isBroad()) {
+                broadByEnd.computeIfAbsent(key.getEnd(), end -> new HashSet<>()).add(key);
+                return;
+            }
+            for (String uri : key.getUris()) {
+                byUri.computeIfAbsent(uri, u -> new HashSet<>()).add(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unindex(StatsKey key) {
+        lock.lock();
+        try {
+            if (loading.containsKey(key) || cache.asMap().containsKey(key)) {
+                return;
+            }
+            if (key.isBroad()) {
+                remove(broadByEnd, key.getEnd(), key);
+                return;
+            }
+            for (String uri : key.getUris()) {
+                remove(byUri, uri, key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <K> void remove(Map<K, Set<StatsKey>> index, K slot, StatsKey key) {
+        Set<StatsKey> keys = index.get(slot);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            index.remove(slot);
+        }
+    }
+
+    private StatsKey key(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean exact) {
+        long now = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        LocalDateTime openBucket = LocalDateTime.ofEpochSecond(Math.floorDiv(now, bucketSeconds) * bucketSeconds,
+                0, ZoneOffset.UTC);
+        LocalDateTime bucketEnd = openBucket.plusSeconds(bucketSeconds - 1);
+        // Only an end inside the open bucket is rounded: nothing is recorded past now, so the wider range returns
+        // the same rows. Rounding start would add or drop hits, so it stays exact.
+        LocalDateTime keyEnd = !end.isBefore(openBucket) && end.isBefore(bucketEnd) ? bucketEnd : end;
+        return new StatsKey(start, keyEnd, uris == null || uris.isEmpty() ? null : Set.copyOf(uris), unique,
+                unique && exact);
+    }
+
+    private static LocalDateTime[] extend(LocalDateTime[] range, LocalDateTime timestamp) {
+        if (range[0] == null || timestamp.isBefore(range[0])) {
+            range[0] = timestamp;
+        }
+        if (range[1] == null || timestamp.isAfter(range[1])) {
+            range[1] = timestamp;
+        }
+        return range;
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    public static class StatsKey {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final Set<String> uris;
+        private final boolean unique;
+        private final boolean exact;
+
+        boolean isBroad() {
+            return uris == null || uris.stream().anyMatch(UriIndex::isPattern);
+        }
+
+        boolean isAffectedBy(Map<String, LocalDateTime[]> ranges, LocalDateTime[] all) {
+            if (uris == null) {
+                return overlaps(all);
+            }
+            for (String uri : uris) {
+                if (UriIndex.isPattern(uri)) {
+                    for (Map.Entry<String, LocalDateTime[]> dirty : ranges.entrySet()) {
+                        if (overlaps(dirty.getValue()) && UriIndex.matches(uri, dirty.getKey())) {
+                            return true;
+                        }
+                    }
+                    continue;
+                }
+                LocalDateTime[] range = ranges.get(uri);
+                if (range != null && overlaps(range)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean overlaps(LocalDateTime[] range) {
+            return !range[1].isBefore(start) && !range[0].isAfter(end);
+        }
+    }
+}
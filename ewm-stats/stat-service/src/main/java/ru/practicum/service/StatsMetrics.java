@@ -0,0 +1,105 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import ru.practicum.ViewStats;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+@Component
+public class StatsMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public StatsMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void ingested(Timer.Sample sample, String mode, int hits) {
+        sample.stop(Timer.builder("stats.ingest.latency")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        meterRegistry.counter("stats.ingest.hits", "mode", mode).increment(hits);
+    }
+
+    public void written(Timer.Sample sample, int hits) {
+        sample.stop(Timer.builder("stats.ingest.write")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        DistributionSummary.builder("stats.ingest.write.size")
+                .baseUnit("hits")
+                .register(meterRegistry)
+                .record(hits);
+    }
+
+    public Query query(String name, boolean unique, Collection<?> uris) {
+        return new Query(name, unique, uris, Timer.start(meterRegistry));
+    }
+
+    private static String urisBucket(Collection<?> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return "all";
+        }
+        int size = uris.size();
+        if (size == 1) {
+            return "1";
+        }
+        if (size <= 10) {
+            return "2-10";
+        }
+        if (size <= 100) {
+            return "11-100";
+        }
+        return "101+";
+    }
+
+    public class Query {
+        private final String name;
+        private final String unique;
+        private final String uris;
+        private final Timer.Sample sample;
+        private long rows;
+
+        private Query(String name, boolean unique, Collection<?> uris, Timer.Sample sample) {
+            this.name = name;
+            this.unique = String.valueOf(unique);
+            this.uris = urisBucket(uris);
+            this.sample = sample;
+        }
+
+        public Consumer<ViewStats> counting(Consumer<ViewStats> consumer) {
+            return stat -> {
+                rows++;
+                consumer.accept(stat);
+            };
+        }
+
+        public void rows(long count) {
+            rows += count;
+        }
+
+        public void stop(String source) {
+            sample.stop(Timer.builder("stats.query.latency")
+                    .tag("query", name)
+                    .tag("source", source)
+                    .tag("unique", unique)
+                    .tag("uris", uris)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            DistributionSummary.builder("stats.query.rows")
+                    .tag("query", name)
+                    .tag("source", source)
+                    .baseUnit("rows")
+                    .register(meterRegistry)
+                    .record(rows);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Slf4j
+@Component
+@ConditionalOnExpression("${stats.metrics.table-scans.enabled:true} and '${stats.storage:postgres}' == 'postgres'")
+public class TableScanMetrics {
+    private static final int SEQUENTIAL = 0;
+    private static final int INDEX = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicLongArray> tables = new ConcurrentHashMap<>();
+
+    public TableScanMetrics(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.metrics.table-scans.refresh-ms:15000}")
+    public void refresh() {
+        try {
+            jdbcTemplate.query("SELECT coalesce(p.relname, s.relname) AS name, " +
+                    "sum(coalesce(s.seq_tup_read, 0)) AS seq, sum(coalesce(s.idx_tup_fetch, 0)) AS idx " +
+                    "FROM pg_stat_user_tables s " +
+                    "LEFT JOIN pg_inherits i ON i.inhrelid = s.relid " +
+                    "LEFT JOIN pg_class p ON p.oid = i.inhparent " +
+                    "GROUP BY 1", rs -> {
+                AtomicLongArray counts = tables.computeIfAbsent(rs.getString("name"), this::register);
+                counts.set(SEQUENTIAL, rs.getLong("seq"));
+                counts.set(INDEX, rs.getLong("idx"));
+            });
+        } catch (DataAccessException e) {
+            log.warn("Не удалось получить статистику чтения таблиц: {}", e.getMessage());
+        }
+    }
+
+    private AtomicLongArray register(String table) {
+        AtomicLongArray counts = new AtomicLongArray(2);
+        FunctionCounter.builder("stats.db.scanned", counts, c -> c.get(SEQUENTIAL))
+                .tag("table", table)
+                .tag("scan", "seq")
+                .baseUnit("rows")
+                .register(meterRegistry);
+        FunctionCounter.builder("stats.db.scanned", counts, c -> c.get(INDEX))
+                .tag("table", table)
+                .tag("scan", "index")
+                .baseUnit("rows")
+                .register(meterRegistry);
+        return counts;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.exception.BadRequestException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TimeSeriesPlan {
+    public static final int MAX_POINTS = 10000;
+
+    private final LocalDateTime origin;
+    private final long step;
+    private final int points;
+
+    public static TimeSeriesPlan of(LocalDateTime start, LocalDateTime end, Duration step) {
+        long seconds = step.getSeconds();
+        if (seconds < 60 || seconds % 60 != 0 || step.getNano() != 0) {
+            throw new BadRequestException("Шаг должен быть кратен минуте");
+        }
+        long origin = Math.floorDiv(start.toEpochSecond(ZoneOffset.UTC), seconds) * seconds;
+        long points = (end.toEpochSecond(ZoneOffset.UTC) - origin) / seconds + 1;
+        if (points > MAX_POINTS) {
+            throw new BadRequestException("Слишком много точек в запросе: " + points);
+        }
+        return new TimeSeriesPlan(LocalDateTime.ofEpochSecond(origin, 0, ZoneOffset.UTC), seconds, (int) points);
+    }
+
+    public int slot(long epochSecond) {
+        return (int) ((epochSecond - origin.toEpochSecond(ZoneOffset.UTC)) / step);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.service;
+
+import ru.practicum.ViewStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+public class TopStats implements Consumer<ViewStats> {
+    private static final Comparator<ViewStats> BY_HITS = Comparator.comparing(ViewStats::getHits);
+
+    private final int limit;
+    private final PriorityQueue<ViewStats> heap;
+
+    public TopStats(int limit) {
+        this.limit = limit;
+        this.heap = new PriorityQueue<>(limit, BY_HITS);
+    }
+
+    @Override
+    public void accept(ViewStats stat) {
+        if (heap.size() < limit) {
+            heap.add(stat);
+        } else if (stat.getHits() > heap.peek().getHits()) {
+            heap.poll();
+            heap.add(stat);
+        }
+    }
+
+    public List<ViewStats> toList() {
+        List<ViewStats> stats = new ArrayList<>(heap);
+        stats.sort(BY_HITS.reversed());
+        return stats;
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.sketch;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counters;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Размеры count-min sketch должны быть положительными");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    public static CountMinSketch forError(double relativeError, double confidence) {
+        int width = (int) Math.ceil(Math.E / relativeError);
+        int depth = (int) Math.ceil(Math.log(1 / (1 - confidence)));
+        return new CountMinSketch(width, depth);
+    }
+
+    public long add(long hash) {
+        long step = Hashing.mix(hash);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, hash + row * step)));
+        }
+        return estimate;
+    }
+
+    public long estimate(long hash) {
+        long step = Hashing.mix(hash);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, hash + row * step)));
+        }
+        return estimate;
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private int index(int row, long hash) {
+        return row * width + Math.floorMod(hash, width);
+    }
+}
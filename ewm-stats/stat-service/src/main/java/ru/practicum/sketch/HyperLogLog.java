@@ -0,0 +1,145 @@
+package ru.practicum.sketch;
+
+import java.nio.ByteBuffer;
+
+public class HyperLogLog {
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    private static final int SPARSE_ENTRY_SIZE = 3;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Точность HyperLogLog должна быть от " + MIN_PRECISION
+                    + " до " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public static int precisionFor(double relativeError) {
+        int precision = (int) Math.ceil(Math.log(Math.pow(1.04 / relativeError, 2)) / Math.log(2));
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void offer(byte[] value) {
+        offerHash(Hashing.hash64(value));
+    }
+
+    public void offerHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        long rest = hash << precision;
+        int rank = rest == 0 ? Long.SIZE - precision + 1 : Long.numberOfLeadingZeros(rest) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision < precision) {
+            return fold(other.precision).merge(other);
+        }
+        HyperLogLog source = other.precision > precision ? other.fold(precision) : other;
+        for (int i = 0; i < registers.length; i++) {
+            if (source.registers[i] > registers[i]) {
+                registers[i] = source.registers[i];
+            }
+        }
+        return this;
+    }
+
+    public long cardinality() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        if (nonZero * SPARSE_ENTRY_SIZE < registers.length) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + nonZero * SPARSE_ENTRY_SIZE);
+            buffer.put(SPARSE).put((byte) precision);
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i).put(registers[i]);
+                }
+            }
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(2 + registers.length);
+        buffer.put(DENSE).put((byte) precision).put(registers);
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        if (format == DENSE) {
+            buffer.get(sketch.registers);
+        } else {
+            while (buffer.hasRemaining()) {
+                int index = Short.toUnsignedInt(buffer.getShort());
+                sketch.registers[index] = buffer.get();
+            }
+        }
+        return sketch;
+    }
+
+    private HyperLogLog fold(int targetPrecision) {
+        HyperLogLog folded = new HyperLogLog(targetPrecision);
+        int droppedBits = precision - targetPrecision;
+        int droppedMask = (1 << droppedBits) - 1;
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] == 0) {
+                continue;
+            }
+            int dropped = i & droppedMask;
+            int rank = dropped != 0
+                    ? droppedBits - (Integer.SIZE - Integer.numberOfLeadingZeros(dropped)) + 1
+                    : droppedBits + registers[i];
+            int index = i >>> droppedBits;
+            if (rank > folded.registers[index]) {
+                folded.registers[index] = (byte) rank;
+            }
+        }
+        return folded;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
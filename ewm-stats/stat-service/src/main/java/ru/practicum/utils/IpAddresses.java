@@ -0,0 +1,121 @@
+package ru.practicum.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class IpAddresses {
+    public static final int LENGTH = 16;
+
+    private IpAddresses() {
+    }
+
+    public static byte[] toBytes(String ip) {
+        byte[] bytes = ip.indexOf(':') >= 0 ? parseIpv6(ip) : parseIpv4(ip);
+        return bytes != null ? bytes : ip.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        byte[] bytes = new byte[LENGTH];
+        bytes[10] = (byte) 0xff;
+        bytes[11] = (byte) 0xff;
+        int octet = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (digits == 0 || octet > 3) {
+                    return null;
+                }
+                bytes[12 + octet++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9' && digits < 3) {
+                value = value * 10 + (c - '0');
+                digits++;
+                if (value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return octet == 4 ? bytes : null;
+    }
+
+    private static byte[] parseIpv6(String ip) {
+        String address = ip.length() > 2 && ip.charAt(0) == '[' && ip.charAt(ip.length() - 1) == ']'
+                ? ip.substring(1, ip.length() - 1) : ip;
+        int length = address.length();
+        byte[] bytes = new byte[LENGTH];
+        int position = 0;
+        int compressed = -1;
+        int i = 0;
+        if (address.startsWith("::")) {
+            compressed = 0;
+            i = 2;
+        } else if (address.startsWith(":")) {
+            return null;
+        }
+        while (i < length) {
+            if (position == LENGTH) {
+                return null;
+            }
+            int groupStart = i;
+            int value = 0;
+            while (i < length && i - groupStart < 4 && hexDigit(address.charAt(i)) >= 0) {
+                value = value * 16 + hexDigit(address.charAt(i++));
+            }
+            if (i < length && address.charAt(i) == '.') {
+                byte[] ipv4 = position <= LENGTH - 4 ? parseIpv4(address.substring(groupStart)) : null;
+                if (ipv4 == null) {
+                    return null;
+                }
+                System.arraycopy(ipv4, 12, bytes, position, 4);
+                position += 4;
+                break;
+            }
+            if (i == groupStart) {
+                return null;
+            }
+            bytes[position++] = (byte) (value >> 8);
+            bytes[position++] = (byte) value;
+            if (i == length) {
+                break;
+            }
+            if (address.charAt(i++) != ':' || i == length) {
+                return null;
+            }
+            if (i < length && address.charAt(i) == ':') {
+                if (compressed >= 0) {
+                    return null;
+                }
+                compressed = position;
+                i++;
+            }
+        }
+        if (compressed < 0) {
+            return position == LENGTH ? bytes : null;
+        }
+        if (position == LENGTH) {
+            return null;
+        }
+        int tail = position - compressed;
+        System.arraycopy(bytes, compressed, bytes, LENGTH - tail, tail);
+        Arrays.fill(bytes, compressed, LENGTH - tail, (byte) 0);
+        return bytes;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
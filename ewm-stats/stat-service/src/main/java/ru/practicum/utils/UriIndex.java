@@ -0,0 +1,75 @@
+package ru.practicum.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class UriIndex {
+    private static final char WILDCARD = '*';
+
+    private final ConcurrentNavigableMap<String, Integer> ids = new ConcurrentSkipListMap<>();
+
+    public static boolean isPattern(String uri) {
+        return uri.indexOf(WILDCARD) >= 0;
+    }
+
+    public static boolean matches(String pattern, String uri) {
+        int wildcard = pattern.indexOf(WILDCARD);
+        if (wildcard < 0) {
+            return pattern.equals(uri);
+        }
+        if (!uri.startsWith(pattern.substring(0, wildcard))) {
+            return false;
+        }
+        return wildcard == pattern.length() - 1 || toRegex(pattern).matcher(uri).matches();
+    }
+
+    public void put(String uri, int id) {
+        ids.put(uri, id);
+    }
+
+    public List<Integer> findByPrefix(String prefix) {
+        List<Integer> found = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : ids.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            found.add(entry.getValue());
+        }
+        return found;
+    }
+
+    public List<Integer> findByPattern(String pattern) {
+        int wildcard = pattern.indexOf(WILDCARD);
+        if (wildcard < 0) {
+            Integer id = ids.get(pattern);
+            return id != null ? List.of(id) : List.of();
+        }
+        String prefix = pattern.substring(0, wildcard);
+        if (wildcard == pattern.length() - 1) {
+            return findByPrefix(prefix);
+        }
+        Pattern regex = toRegex(pattern);
+        List<Integer> found = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : ids.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            if (regex.matcher(entry.getKey()).matches()) {
+                found.add(entry.getValue());
+            }
+        }
+        return found;
+    }
+
+    private static Pattern toRegex(String pattern) {
+        return Pattern.compile(Arrays.stream(pattern.split("\\*", -1))
+                .map(Pattern::quote)
+                .collect(Collectors.joining(".*")));
+    }
+}
@@ -1,9 +1,98 @@
+CREATE TABLE IF NOT EXISTS apps
+(
+    app_id integer NOT NULL GENERATED BY DEFAULT AS IDENTITY,
+    name varchar(256) NOT NULL,
+    CONSTRAINT apps_pkey PRIMARY KEY (app_id),
+    CONSTRAINT apps_name_key UNIQUE (name)
+    );
+
+CREATE TABLE IF NOT EXISTS uris
+(
+    uri_id integer NOT NULL GENERATED BY DEFAULT AS IDENTITY,
+    name varchar(256) NOT NULL,
+    CONSTRAINT uris_pkey PRIMARY KEY (uri_id),
+    CONSTRAINT uris_name_key UNIQUE (name)
+    );
+
 CREATE TABLE IF NOT EXISTS endpoint_hits
 (
     hit_id bigint NOT NULL GENERATED BY DEFAULT AS IDENTITY,
-    app varchar(256) NOT NULL,
-    uri varchar(256) NOT NULL,
-    ip varchar(32) NOT NULL,
+    app_id integer NOT NULL,
+    uri_id integer NOT NULL,
+    ip bytea NOT NULL,
     hit_timestamp timestamp with time zone NOT NULL,
-    CONSTRAINT hit_pkey PRIMARY KEY (hit_id)
-    );
\ No newline at end of file
+    dedup_key varchar(128),
+    CONSTRAINT hit_pkey PRIMARY KEY (hit_id, hit_timestamp)
+    ) PARTITION BY RANGE (hit_timestamp);
+
+CREATE INDEX IF NOT EXISTS endpoint_hits_timestamp_idx ON endpoint_hits (hit_timestamp);
+
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS dedup_key varchar(128);
+
+CREATE UNIQUE INDEX IF NOT EXISTS endpoint_hits_dedup_key_idx ON endpoint_hits (dedup_key, hit_timestamp)
+    WHERE dedup_key IS NOT NULL;
+
+CREATE TABLE IF NOT EXISTS hits_minute
+(
+    bucket timestamp without time zone NOT NULL,
+    app_id integer NOT NULL,
+    uri_id integer NOT NULL,
+    hits bigint NOT NULL,
+    CONSTRAINT hits_minute_pkey PRIMARY KEY (bucket, app_id, uri_id)
+    );
+
+CREATE TABLE IF NOT EXISTS hits_hour
+(
+    bucket timestamp without time zone NOT NULL,
+    app_id integer NOT NULL,
+    uri_id integer NOT NULL,
+    hits bigint NOT NULL,
+    CONSTRAINT hits_hour_pkey PRIMARY KEY (bucket, app_id, uri_id)
+    );
+
+CREATE TABLE IF NOT EXISTS hits_day
+(
+    bucket timestamp without time zone NOT NULL,
+    app_id integer NOT NULL,
+    uri_id integer NOT NULL,
+    hits bigint NOT NULL,
+    CONSTRAINT hits_day_pkey PRIMARY KEY (bucket, app_id, uri_id)
+    );
+
+CREATE TABLE IF NOT EXISTS visitors_hour
+(
+    bucket timestamp without time zone NOT NULL,
+    app_id integer NOT NULL,
+    uri_id integer NOT NULL,
+    sketch bytea NOT NULL,
+    CONSTRAINT visitors_hour_pkey PRIMARY KEY (bucket, app_id, uri_id)
+    );
+
+CREATE TABLE IF NOT EXISTS visitors_day
+(
+    bucket timestamp without time zone NOT NULL,
+    app_id integer NOT NULL,
+    uri_id integer NOT NULL,
+    sketch bytea NOT NULL,
+    CONSTRAINT visitors_day_pkey PRIMARY KEY (bucket, app_id, uri_id)
+    );
+
+CREATE TABLE IF NOT EXISTS compaction_horizons
+(
+    level varchar(16) NOT NULL,
+    horizon timestamp without time zone NOT NULL,
+    CONSTRAINT compaction_horizons_pkey PRIMARY KEY (level)
+    );
+
+CREATE TABLE IF NOT EXISTS uri_counters
+(
+    app_id integer NOT NULL,
+    uri_id integer NOT NULL,
+    total_hits bigint NOT NULL,
+    first_hit timestamp without time zone NOT NULL,
+    last_hit timestamp without time zone NOT NULL,
+    sketch bytea,
+    CONSTRAINT uri_counters_pkey PRIMARY KEY (app_id, uri_id)
+    );
+
+CREATE INDEX IF NOT EXISTS uri_counters_uri_idx ON uri_counters (uri_id);
@@ -0,0 +1,103 @@
+package ru.practicum.hitlog;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitCountersTest {
+
+    private static final long DAY = 86400;
+
+    @Test
+    void sumsMinutesAndHours() {
+        HitCounters counters = new HitCounters();
+        counters.add(1, 10, 0);
+        counters.add(1, 10, 59);
+        counters.add(1, 10, 61);
+        counters.add(1, 11, 3599);
+
+        Map<Long, Long> minutes = new HashMap<>();
+        counters.sumMinutes(0, 60, null, minutes);
+        Map<Long, Long> hours = new HashMap<>();
+        counters.sumHours(0, 3600, Set.of(10), hours);
+
+        assertEquals(Map.of(HitCounters.key(1, 10), 2L), minutes);
+        assertEquals(Map.of(HitCounters.key(1, 10), 3L), hours);
+    }
+
+    @Test
+    void snapshotRoundTripKeepsCountsAndVisitors() throws IOException {
+        HitCounters counters = new HitCounters();
+        counters.add(1, 10, 120);
+        counters.add(2, 20, 7200);
+        HyperLogLog sketch = new HyperLogLog(10);
+        for (long i = 0; i < 100; i++) {
+            sketch.offerHash(i * 0x9e3779b97f4a7c15L);
+        }
+        counters.addVisitors(HitCounters.key(1, 10), 0, sketch);
+
+        HitCounters restored = new HitCounters();
+        restored.read(new DataInputStream(new ByteArrayInputStream(write(counters))), true);
+
+        Map<Long, Long> hours = new HashMap<>();
+        restored.sumHours(0, DAY, null, hours);
+        assertEquals(Map.of(HitCounters.key(1, 10), 1L, HitCounters.key(2, 20), 1L), hours);
+        Map<Long, HyperLogLog> visitors = new HashMap<>();
+        restored.mergeVisitors(0, DAY, null, visitors, key -> new HyperLogLog(10));
+        assertEquals(sketch.cardinality(), visitors.get(HitCounters.key(1, 10)).cardinality());
+    }
+
+    @Test
+    void foldMinutesKeepsHourTotals() {
+        HitCounters counters = new HitCounters();
+        counters.add(1, 10, 60);
+        counters.add(1, 10, 3660);
+
+        counters.foldMinutes(3600);
+
+        Map<Long, Long> minutes = new HashMap<>();
+        counters.sumMinutes(0, 7200, null, minutes);
+        Map<Long, Long> hours = new HashMap<>();
+        counters.sumHours(0, 7200, null, hours);
+        assertEquals(Map.of(HitCounters.key(1, 10), 1L), minutes);
+        assertEquals(Map.of(HitCounters.key(1, 10), 2L), hours);
+    }
+
+    @Test
+    void addVisitorsMergesSameDay() {
+        HitCounters counters = new HitCounters();
+        HyperLogLog first = new HyperLogLog(10);
+        first.offerHash(0x1234567890abcdefL);
+        HyperLogLog second = new HyperLogLog(10);
+        second.offerHash(0x7edcba0987654321L);
+        counters.addVisitors(HitCounters.key(1, 10), DAY, first);
+        counters.addVisitors(HitCounters.key(1, 10), DAY, second);
+
+        Map<Long, HyperLogLog> visitors = new HashMap<>();
+        counters.mergeVisitors(0, 2 * DAY, null, visitors, key -> new HyperLogLog(10));
+
+        assertEquals(2, visitors.get(HitCounters.key(1, 10)).cardinality());
+        Map<Long, HyperLogLog> none = new HashMap<>();
+        counters.mergeVisitors(0, DAY, null, none, key -> new HyperLogLog(10));
+        assertTrue(none.isEmpty());
+    }
+
+    private static byte[] write(HitCounters counters) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            counters.write(out);
+        }
+        return bytes.toByteArray();
+    }
+}
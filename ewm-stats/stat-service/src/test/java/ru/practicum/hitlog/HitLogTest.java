@@ -0,0 +1,118 @@
+package ru.practicum.hitlog;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.ViewStats;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class HitLogTest {
+
+    private static final LocalDateTime OLD = LocalDateTime.of(2020, 1, 1, 10, 0);
+    private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2100, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private HitLog hitLog;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        hitLog.close();
+    }
+
+    @Test
+    void replaysCountersAfterRestart() throws IOException {
+        hitLog = open(0, 0);
+        hitLog.append(hit("/events/1", "10.0.0.1", OLD));
+        hitLog.append(hit("/events/1", "10.0.0.2", OLD.plusMinutes(1)));
+        hitLog.close();
+
+        hitLog = open(0, 0);
+
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", 2L)), stats(false));
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", 2L)), stats(true));
+    }
+
+    @Test
+    void compactionRetiresSealedSegmentsAndKeepsTotals() throws IOException {
+        hitLog = open(1, 1);
+        int perSegment = 1024 * 1024 / Segment.RECORD_SIZE;
+        List<EndpointHitDto> hits = new ArrayList<>();
+        for (int i = 0; i < perSegment; i++) {
+            hits.add(hit("/events/1", "10.0.0." + (i % 3), OLD.plusSeconds(i % 60)));
+        }
+        hitLog.append(hits);
+        hitLog.append(hit("/events/1", "10.0.0.9", LocalDateTime.now()));
+        assertEquals(2, segmentFiles());
+
+        hitLog.compact();
+
+        assertEquals(1, segmentFiles());
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", perSegment + 1L)), stats(false));
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", 4L)), stats(true));
+
+        hitLog.append(hit("/events/1", "10.0.0.8", LocalDateTime.now()));
+        hitLog.close();
+        hitLog = open(1, 1);
+
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", perSegment + 2L)), stats(false));
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", 5L)), stats(true));
+    }
+
+    private HitLog open(int rawRetentionDays, int minuteRetentionDays) throws IOException {
+        HitLog log = new HitLog(directory.toString(), 1, rawRetentionDays, minuteRetentionDays, 0.01);
+        log.open();
+        return log;
+    }
+
+    @Test
+    void estimatesUniqueVisitorsWhenExactCountIsNotRequired() throws IOException {
+        hitLog = open(0, 0);
+        int visitors = 20_000;
+        List<EndpointHitDto> hits = new ArrayList<>();
+        for (int i = 0; i < visitors; i++) {
+            hits.add(hit("/events/1", "10.0." + (i >> 8) + "." + (i & 0xff), OLD));
+        }
+        hitLog.append(hits);
+
+        long exact = stats(true, true).get(0).getHits();
+        long estimated = stats(true, false).get(0).getHits();
+
+        assertEquals(visitors, exact);
+        assertNotEquals(exact, estimated);
+        assertEquals(visitors, estimated, visitors * 0.02);
+    }
+
+    private List<ViewStats> stats(boolean unique) {
+        return stats(unique, true);
+    }
+
+    private List<ViewStats> stats(boolean unique, boolean exact) {
+        List<ViewStats> stats = new ArrayList<>();
+        hitLog.getStats(START, END, List.of("/events/*"), unique, exact, stats::add);
+        return stats;
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+
+    private static EndpointHitDto hit(String uri, String ip, LocalDateTime timestamp) {
+        return new EndpointHitDto(null, "ewm-main-service", uri, ip, timestamp, null);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.hitlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentTest {
+
+    private static final int SIZE = Segment.RECORD_SIZE * 4;
+    private static final byte[] IP = new byte[16];
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversAllValidRecords() throws IOException {
+        Path file = directory.resolve("segment.log");
+        Segment segment = Segment.open(file, 0, SIZE);
+        segment.append(100, 1, 1, IP);
+        segment.append(200, 1, 2, IP);
+        segment.close();
+
+        List<Long> timestamps = new ArrayList<>();
+        Segment reopened = Segment.open(file, 0, SIZE);
+
+        assertEquals(2, reopened.recover((timestamp, appId, uriId, ipHigh, ipLow) -> timestamps.add(timestamp)));
+        assertEquals(List.of(100L, 200L), timestamps);
+        assertEquals(2, reopened.getCount());
+        assertEquals(200, reopened.getMaxTimestamp());
+        reopened.close();
+    }
+
+    @Test
+    void stopsAtFirstCorruptRecord() throws IOException {
+        Path file = directory.resolve("segment.log");
+        Segment segment = Segment.open(file, 0, SIZE);
+        segment.append(100, 1, 1, IP);
+        segment.append(200, 1, 2, IP);
+        segment.append(300, 1, 3, IP);
+        segment.close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), Segment.RECORD_SIZE + 14);
+        }
+
+        List<Integer> uris = new ArrayList<>();
+        Segment reopened = Segment.open(file, 0, SIZE);
+
+        assertEquals(1, reopened.recover((timestamp, appId, uriId, ipHigh, ipLow) -> uris.add(uriId)));
+        assertEquals(List.of(1), uris);
+        assertTrue(reopened.append(400, 1, 4, IP));
+        reopened.close();
+    }
+
+    @Test
+    void rejectsAppendWhenFull() throws IOException {
+        Segment segment = Segment.open(directory.resolve("segment.log"), 0, SIZE);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(segment.append(i, 1, 1, IP));
+        }
+
+        assertFalse(segment.append(5, 1, 1, IP));
+        segment.close();
+    }
+
+    @Test
+    void forEachFiltersByTimestamp() throws IOException {
+        Segment segment = Segment.open(directory.resolve("segment.log"), 0, SIZE);
+        segment.append(100, 1, 1, IP);
+        segment.append(200, 1, 2, IP);
+        segment.append(300, 1, 3, IP);
+
+        List<Integer> uris = new ArrayList<>();
+        segment.forEach(150, 300, (timestamp, appId, uriId, ipHigh, ipLow) -> uris.add(uriId));
+
+        assertEquals(List.of(2, 3), uris);
+        segment.close();
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.HeavyHitter;
+import ru.practicum.sketch.CountMinSketch;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHitterTrackerTest {
+
+    private static final long WINDOW = 60_000;
+
+    private final HeavyHitterTracker tracker = new HeavyHitterTracker(WINDOW, 6, 10,
+            () -> CountMinSketch.forError(0.001, 0.99));
+
+    @Test
+    void ranksMostFrequentKeys() {
+        add("/events/1", 50, 0);
+        add("/events/2", 30, 0);
+        add("/events/3", 10, 0);
+
+        List<HeavyHitter> top = tracker.top(2, 0);
+
+        assertEquals(List.of("/events/1", "/events/2"), keys(top));
+        assertEquals(50, top.get(0).getHits());
+        assertEquals(30, top.get(1).getHits());
+    }
+
+    @Test
+    void sumsHitsAcrossSlotsInWindow() {
+        add("/events/1", 5, 0);
+        add("/events/1", 7, WINDOW / 2);
+
+        assertEquals(12, tracker.top(1, WINDOW / 2).get(0).getHits());
+    }
+
+    @Test
+    void forgetsSlotsOutsideWindow() {
+        add("/events/1", 50, 0);
+        add("/events/2", 5, WINDOW + 1);
+
+        List<HeavyHitter> top = tracker.top(10, WINDOW + 1);
+
+        assertEquals(List.of("/events/2"), keys(top));
+    }
+
+    @Test
+    void keepsOnlyCapacityCandidatesPerSlot() {
+        for (int i = 0; i < 20; i++) {
+            add("/events/" + i, i + 1, 0);
+        }
+
+        List<HeavyHitter> top = tracker.top(20, 0);
+
+        assertTrue(top.size() <= 10);
+        assertEquals("/events/19", top.get(0).getValue());
+    }
+
+    private void add(String key, int times, long now) {
+        for (int i = 0; i < times; i++) {
+            tracker.add(key, now);
+        }
+    }
+
+    private static List<String> keys(List<HeavyHitter> hitters) {
+        return hitters.stream().map(HeavyHitter::getValue).collect(Collectors.toList());
+    }
+}
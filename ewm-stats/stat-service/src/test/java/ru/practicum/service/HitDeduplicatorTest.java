@@ -0,0 +1,77 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.EndpointHitDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitDeduplicatorTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final HitDeduplicator deduplicator = new HitDeduplicator(registry, 1000, 60);
+
+    @Test
+    void remembersKeyedHits() {
+        EndpointHitDto hit = hit("a", TIMESTAMP);
+        assertFalse(deduplicator.isRecent(hit));
+
+        deduplicator.remember(List.of(hit));
+
+        assertTrue(deduplicator.isRecent(hit("a", TIMESTAMP)));
+        assertFalse(deduplicator.isRecent(hit("a", TIMESTAMP.plusSeconds(1))));
+        assertEquals(1, duplicates("cache"));
+    }
+
+    @Test
+    void neverTreatsUnkeyedHitsAsDuplicates() {
+        EndpointHitDto hit = hit(null, TIMESTAMP);
+        deduplicator.remember(List.of(hit));
+
+        assertFalse(deduplicator.isRecent(hit));
+        assertEquals(2, deduplicator.filter(List.of(hit, hit)).size());
+    }
+
+    @Test
+    void filterDropsRememberedAndRepeatedKeys() {
+        deduplicator.remember(List.of(hit("a", TIMESTAMP)));
+        EndpointHitDto first = hit("b", TIMESTAMP);
+        EndpointHitDto unkeyed = hit(null, TIMESTAMP);
+
+        List<EndpointHitDto> accepted = deduplicator.filter(List.of(hit("a", TIMESTAMP), first, hit("b", TIMESTAMP),
+                unkeyed));
+
+        assertEquals(List.of(first, unkeyed), accepted);
+        assertEquals(2, duplicates("cache"));
+    }
+
+    @Test
+    void filterReturnsSameListWithoutDuplicates() {
+        List<EndpointHitDto> hits = List.of(hit("a", TIMESTAMP), hit("b", TIMESTAMP));
+
+        assertSame(hits, deduplicator.filter(hits));
+    }
+
+    @Test
+    void countsDatabaseRejections() {
+        deduplicator.rejected(3);
+
+        assertEquals(3, duplicates("database"));
+    }
+
+    private double duplicates(String stage) {
+        return registry.counter("stats.ingest.duplicates", "stage", stage).count();
+    }
+
+    private static EndpointHitDto hit(String dedupKey, LocalDateTime timestamp) {
+        return new EndpointHitDto(null, "ewm-main-service", "/events/1", "192.163.0.1", timestamp, dedupKey);
+    }
+}
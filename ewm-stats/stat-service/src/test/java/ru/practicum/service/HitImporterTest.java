@@ -0,0 +1,126 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.ImportResult;
+import ru.practicum.exception.BadRequestException;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class HitImporterTest {
+
+    private static final ValidatorFactory VALIDATION = Validation.buildDefaultValidatorFactory();
+
+    private final StatService statService = mock(StatService.class);
+    private final List<EndpointHitDto> imported = new ArrayList<>();
+    private final HitImporter importer = new HitImporter(statService, new ObjectMapper().findAndRegisterModules(),
+            VALIDATION.getValidator(), 2, 1_000_000);
+
+    @AfterAll
+    static void tearDown() {
+        VALIDATION.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> imported.addAll(invocation.getArgument(0))).when(statService).importStats(anyList());
+    }
+
+    @Test
+    void importsNdjsonInChunks() throws IOException {
+        ImportResult result = importHits(HitImporter.Format.NDJSON, 0, json("/events/1"), json("/events/2"), "",
+                json("/events/3"), json("/events/4"), json("/events/5"));
+
+        assertEquals(new ImportResult(5L, 0L, 5L), result);
+        assertEquals(List.of("/events/1", "/events/2", "/events/3", "/events/4", "/events/5"), uris());
+        verify(statService, times(3)).importStats(anyList());
+    }
+
+    @Test
+    void skipsHeaderAndOffsetRecordsInCsv() throws IOException {
+        ImportResult result = importHits(HitImporter.Format.CSV, 2, "app,uri,ip,timestamp",
+                csv("/events/1"), csv("/events/2"), csv("/events/3"), csv("/events/4"));
+
+        assertEquals(new ImportResult(2L, 2L, 4L), result);
+        assertEquals(List.of("/events/3", "/events/4"), uris());
+    }
+
+    @Test
+    void reportsSkippedRecordsWhenOffsetExceedsInput() throws IOException {
+        ImportResult result = importHits(HitImporter.Format.CSV, 10, csv("/events/1"), csv("/events/2"));
+
+        assertEquals(new ImportResult(0L, 2L, 2L), result);
+    }
+
+    @Test
+    void parsesQuotedCsvFieldsAndDedupKey() throws IOException {
+        importHits(HitImporter.Format.CSV, 0,
+                "ewm-main-service,\"/events/1?q=a,\"\"b\"\"\",192.163.0.1,2024-05-01 12:00:00,key-1");
+
+        assertEquals("/events/1?q=a,\"b\"", imported.get(0).getUri());
+        assertEquals("key-1", imported.get(0).getDedupKey());
+    }
+
+    @Test
+    void failedLineReportsResumableOffset() throws IOException {
+        BadRequestException e = assertThrows(BadRequestException.class, () -> importHits(HitImporter.Format.CSV, 0,
+                "app,uri,ip,timestamp", csv("/events/1"), csv("/events/2"), csv("/events/3"),
+                "ewm-main-service,/events/4,192.163.0.1,not-a-date", csv("/events/5")));
+
+        assertTrue(e.getMessage().contains("строка 5"), e.getMessage());
+        assertTrue(e.getMessage().contains("Загружено записей: 3"), e.getMessage());
+        assertTrue(e.getMessage().contains("offset=3"), e.getMessage());
+        assertEquals(List.of("/events/1", "/events/2", "/events/3"), uris());
+
+        ImportResult resumed = importHits(HitImporter.Format.CSV, 3, "app,uri,ip,timestamp",
+                csv("/events/1"), csv("/events/2"), csv("/events/3"), csv("/events/4"), csv("/events/5"));
+
+        assertEquals(new ImportResult(2L, 3L, 5L), resumed);
+        assertEquals(List.of("/events/1", "/events/2", "/events/3", "/events/4", "/events/5"), uris());
+    }
+
+    @Test
+    void rejectsInvalidHit() {
+        BadRequestException e = assertThrows(BadRequestException.class, () -> importHits(HitImporter.Format.NDJSON,
+                0, "{\"app\":\"ewm-main-service\",\"uri\":\"\",\"ip\":\"192.163.0.1\"," +
+                        "\"timestamp\":\"2024-05-01 12:00:00\"}"));
+
+        assertTrue(e.getMessage().contains("offset=0"), e.getMessage());
+    }
+
+    private ImportResult importHits(HitImporter.Format format, long offset, String... lines) throws IOException {
+        return importer.importHits(new BufferedReader(new StringReader(String.join("\n", lines))), format, offset);
+    }
+
+    private List<String> uris() {
+        return imported.stream().map(EndpointHitDto::getUri).collect(Collectors.toList());
+    }
+
+    private static String json(String uri) {
+        return "{\"app\":\"ewm-main-service\",\"uri\":\"" + uri + "\",\"ip\":\"192.163.0.1\"," +
+                "\"timestamp\":\"2024-05-01 12:00:00\"}";
+    }
+
+    private static String csv(String uri) {
+        return "ewm-main-service," + uri + ",192.163.0.1,2024-05-01 12:00:00";
+    }
+}
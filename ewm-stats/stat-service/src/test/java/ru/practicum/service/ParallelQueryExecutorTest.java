@@ -0,0 +1,67 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelQueryExecutorTest {
+
+    private ParallelQueryExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    void splitsLongRangeIntoThreadCountChunks() {
+        executor = new ParallelQueryExecutor(4, 30, 10);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+        List<LocalDateTime> bounds = executor.split(start, start.plusDays(365));
+
+        assertEquals(5, bounds.size());
+        assertEquals(start, bounds.get(0));
+        assertEquals(start.plusDays(365), bounds.get(4));
+    }
+
+    @Test
+    void keepsShortRangeWhole() {
+        executor = new ParallelQueryExecutor(4, 30, 10);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+        assertEquals(List.of(start, start.plusDays(45)), executor.split(start, start.plusDays(45)));
+    }
+
+    @Test
+    void fansOutWhenConnectionsAreAvailable() {
+        executor = new ParallelQueryExecutor(4, 30, 10);
+        String caller = Thread.currentThread().getName();
+
+        for (String name : executor.invokeAll(threadNames(3))) {
+            assertNotEquals(caller, name);
+            assertTrue(name.startsWith("stats-query-"));
+        }
+    }
+
+    @Test
+    void runsOnCallerWhenFanOutWouldExceedConnections() {
+        executor = new ParallelQueryExecutor(4, 30, 3);
+        String caller = Thread.currentThread().getName();
+
+        assertEquals(List.of(caller, caller, caller), executor.invokeAll(threadNames(3)));
+    }
+
+    private static List<Callable<String>> threadNames(int count) {
+        Callable<String> task = () -> Thread.currentThread().getName();
+        return Collections.nCopies(count, task);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RollupPlanTest {
+
+    private static LocalDateTime at(int hour, int minute, int second) {
+        return LocalDateTime.of(2024, 5, 1, hour, minute, second);
+    }
+
+    @Test
+    void splitsRangeIntoRawMinuteAndHourParts() {
+        RollupPlan plan = RollupPlan.of(at(10, 0, 30), at(12, 30, 15), ChronoUnit.MINUTES, ChronoUnit.HOURS);
+
+        assertEquals(at(10, 0, 30), plan.getStart());
+        assertEquals(at(10, 1, 0), plan.getFineStart());
+        assertEquals(at(11, 0, 0), plan.getCoarseStart());
+        assertEquals(at(12, 0, 0), plan.getCoarseEnd());
+        assertEquals(at(12, 30, 0), plan.getFineEnd());
+        assertEquals(at(12, 30, 15), plan.getEnd());
+    }
+
+    @Test
+    void keepsAlignedBoundsInRollups() {
+        RollupPlan plan = RollupPlan.of(at(10, 0, 0), at(12, 0, 0), ChronoUnit.MINUTES, ChronoUnit.HOURS);
+
+        assertEquals(at(10, 0, 0), plan.getFineStart());
+        assertEquals(at(10, 0, 0), plan.getCoarseStart());
+        assertEquals(at(12, 0, 0), plan.getCoarseEnd());
+        assertEquals(at(12, 0, 0), plan.getFineEnd());
+    }
+
+    @Test
+    void scansRawOnlyWithinOneMinute() {
+        RollupPlan plan = RollupPlan.of(at(10, 0, 10), at(10, 0, 50), ChronoUnit.MINUTES, ChronoUnit.HOURS);
+
+        assertEquals(at(10, 0, 10), plan.getFineStart());
+        assertEquals(at(10, 0, 10), plan.getCoarseStart());
+        assertEquals(at(10, 0, 10), plan.getCoarseEnd());
+        assertEquals(at(10, 0, 10), plan.getFineEnd());
+        assertEquals(at(10, 0, 50), plan.getEnd());
+    }
+
+    @Test
+    void usesMinutesOnlyWithoutWholeHour() {
+        RollupPlan plan = RollupPlan.of(at(10, 0, 30), at(10, 45, 0), ChronoUnit.MINUTES, ChronoUnit.HOURS);
+
+        assertEquals(at(10, 1, 0), plan.getFineStart());
+        assertEquals(at(10, 45, 0), plan.getCoarseStart());
+        assertEquals(at(10, 45, 0), plan.getCoarseEnd());
+        assertEquals(at(10, 45, 0), plan.getFineEnd());
+    }
+
+    @Test
+    void widensEdgesToWholeMinutesBeforeRawHorizon() {
+        RollupPlan plan = RollupPlan.of(at(10, 0, 30), at(12, 30, 15), ChronoUnit.MINUTES, ChronoUnit.HOURS,
+                at(13, 0, 0), LocalDateTime.MIN);
+
+        assertEquals(at(10, 0, 0), plan.getFineStart());
+        assertEquals(at(10, 0, 0), plan.getCoarseStart());
+        assertEquals(at(12, 0, 0), plan.getCoarseEnd());
+        assertEquals(at(12, 31, 0), plan.getFineEnd());
+    }
+
+    @Test
+    void widensEdgesToWholeHoursBeforeFineHorizon() {
+        RollupPlan plan = RollupPlan.of(at(10, 20, 30), at(12, 30, 15), ChronoUnit.MINUTES, ChronoUnit.HOURS,
+                at(13, 0, 0), at(11, 0, 0));
+
+        assertEquals(at(10, 0, 0), plan.getFineStart());
+        assertEquals(at(10, 0, 0), plan.getCoarseStart());
+        assertEquals(at(12, 0, 0), plan.getCoarseEnd());
+        assertEquals(at(12, 31, 0), plan.getFineEnd());
+    }
+
+    @Test
+    void widensEdgesInsideCompactedDaysToWholeDays() {
+        LocalDateTime horizon = LocalDateTime.of(2024, 5, 3, 0, 0);
+
+        assertEquals(at(0, 0, 0), RollupPlan.historyStart(at(10, 30, 0), horizon));
+        assertEquals(LocalDateTime.of(2024, 5, 2, 0, 0),
+                RollupPlan.historyEnd(at(10, 30, 0), at(18, 45, 0), horizon));
+        assertEquals(horizon, RollupPlan.historyEnd(at(10, 30, 0), horizon.plusHours(5), horizon));
+    }
+
+    @Test
+    void keepsEdgesAfterHourHorizon() {
+        LocalDateTime horizon = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+        assertEquals(at(10, 30, 0), RollupPlan.historyStart(at(10, 30, 0), horizon));
+        assertEquals(at(10, 30, 0), RollupPlan.historyEnd(at(10, 30, 0), at(18, 45, 0), horizon));
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.EncodedHit;
+import ru.practicum.repository.SketchKey;
+import ru.practicum.repository.SketchRepository;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SketchBufferTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    private final SketchRepository repository = mock(SketchRepository.class);
+    private final SketchBuffer buffer = new SketchBuffer(repository,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    private final List<Map<SketchKey, HyperLogLog>> hours = new ArrayList<>();
+    private final List<Map<SketchKey, HyperLogLog>> totals = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(repository.newSketch()).thenAnswer(invocation -> new HyperLogLog(14));
+        doAnswer(invocation -> hours.add(new HashMap<>(invocation.getArgument(0))))
+                .when(repository).mergeHours(anyMap());
+        doAnswer(invocation -> totals.add(new HashMap<>(invocation.getArgument(0))))
+                .when(repository).mergeTotals(anyMap());
+    }
+
+    @Test
+    void foldsHitsIntoOneSketchPerBucket() {
+        buffer.add(List.of(hit(1, "10.0.0.1", HOUR.plusMinutes(5)), hit(1, "10.0.0.2", HOUR.plusMinutes(50)),
+                hit(1, "10.0.0.1", HOUR.plusHours(1)), hit(2, "10.0.0.3", HOUR)));
+
+        buffer.flush();
+
+        assertEquals(1, hours.size());
+        Map<SketchKey, HyperLogLog> flushed = hours.get(0);
+        assertEquals(3, flushed.size());
+        assertEquals(2, flushed.get(new SketchKey(HOUR, 1, 1)).cardinality());
+        assertEquals(1, flushed.get(new SketchKey(HOUR.plusHours(1), 1, 1)).cardinality());
+        assertEquals(2, totals.get(0).get(new SketchKey(null, 1, 1)).cardinality());
+        assertEquals(1, totals.get(0).get(new SketchKey(null, 1, 2)).cardinality());
+    }
+
+    @Test
+    void skipsWritesWhenNothingWasBuffered() {
+        buffer.flush();
+
+        verify(repository, never()).mergeHours(anyMap());
+        verify(repository).markRolledUp(any());
+    }
+
+    @Test
+    void keepsSketchesForNextFlushWhenWriteFails() {
+        buffer.add(List.of(hit(1, "10.0.0.1", HOUR)));
+        doThrow(new IllegalStateException("down")).doAnswer(invocation -> hours.add(invocation.getArgument(0)))
+                .when(repository).mergeHours(anyMap());
+
+        buffer.flush();
+        buffer.add(List.of(hit(1, "10.0.0.2", HOUR)));
+        buffer.flush();
+
+        assertEquals(1, hours.size());
+        assertEquals(2, hours.get(0).get(new SketchKey(HOUR, 1, 1)).cardinality());
+        assertEquals(1, totals.size());
+        assertEquals(2, totals.get(0).get(new SketchKey(null, 1, 1)).cardinality());
+    }
+
+    private static EncodedHit hit(int uriId, String ip, LocalDateTime timestamp) {
+        return new EncodedHit(1, uriId, ip.getBytes(), timestamp, null);
+    }
+}
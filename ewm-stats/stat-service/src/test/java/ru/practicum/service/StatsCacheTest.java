@@ -0,0 +1,98 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.EndpointHitDto;
+import ru.practicum.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatsCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    private final StatsCache cache = new StatsCache(new SimpleMeterRegistry(), 1000, 3600, 60);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void hitEvictsMatchingWildcardKey() {
+        read(List.of("/events/*"));
+        read(List.of("/events/*"));
+        assertEquals(1, loads.get());
+
+        cache.invalidate(List.of(hit("/events/42")));
+
+        read(List.of("/events/*"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void hitKeepsNonMatchingWildcardKey() {
+        read(List.of("/events/*/comments"));
+
+        cache.invalidate(List.of(hit("/events/42"), hit("/compilations/1/comments")));
+
+        read(List.of("/events/*/comments"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void hitEvictsExactKey() {
+        read(List.of("/events/42"));
+        cache.invalidate(List.of(hit("/events/7")));
+        read(List.of("/events/42"));
+        assertEquals(1, loads.get());
+
+        cache.invalidate(List.of(hit("/events/42")));
+        read(List.of("/events/42"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void hitOutsideRangeKeepsKeys() {
+        LocalDateTime end = LocalDateTime.of(2024, 4, 1, 0, 0);
+        read(null, end);
+        read(List.of("/events/*"), end);
+        read(List.of("/events/42"), end);
+
+        cache.invalidate(List.of(hit("/events/42")));
+
+        read(null, end);
+        read(List.of("/events/*"), end);
+        read(List.of("/events/42"), end);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void hitDuringLoadSkipsCaching() {
+        cache.get(START, END, List.of("/events/42"), false, false, key -> {
+            loads.incrementAndGet();
+            cache.invalidate(List.of(hit("/events/42")));
+            return List.of();
+        });
+
+        read(List.of("/events/42"));
+        assertEquals(2, loads.get());
+    }
+
+    private void read(List<String> uris) {
+        read(uris, END);
+    }
+
+    private void read(List<String> uris, LocalDateTime end) {
+        cache.get(START, end, uris, false, false, key -> {
+            loads.incrementAndGet();
+            return List.of(new ViewStats("ewm-main-service", "/events/42", 1L));
+        });
+    }
+
+    private static EndpointHitDto hit(String uri) {
+        return new EndpointHitDto(null, "ewm-main-service", uri, "192.163.0.1", LocalDateTime.of(2024, 5, 1, 12, 0),
+                null);
+    }
+}
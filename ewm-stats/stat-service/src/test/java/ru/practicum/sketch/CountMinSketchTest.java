@@ -0,0 +1,66 @@
+package ru.practicum.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+
+    @Test
+    void neverUnderestimates() {
+        CountMinSketch sketch = CountMinSketch.forError(0.01, 0.99);
+        for (long key = 0; key < 1000; key++) {
+            for (int i = 0; i <= key % 10; i++) {
+                sketch.add(Hashing.mix(key));
+            }
+        }
+
+        for (long key = 0; key < 1000; key++) {
+            assertTrue(sketch.estimate(Hashing.mix(key)) >= key % 10 + 1);
+        }
+    }
+
+    @Test
+    void overestimatesWithinErrorBound() {
+        CountMinSketch sketch = CountMinSketch.forError(0.001, 0.99);
+        long total = 0;
+        for (long key = 0; key < 10_000; key++) {
+            sketch.add(Hashing.mix(key));
+            total++;
+        }
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add(Hashing.mix(-1));
+            total++;
+        }
+
+        long estimate = sketch.estimate(Hashing.mix(-1));
+        assertTrue(estimate >= 5_000 && estimate <= 5_000 + 0.001 * total);
+    }
+
+    @Test
+    void addReturnsCurrentEstimate() {
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+
+        assertEquals(1, sketch.add(42));
+        assertEquals(2, sketch.add(42));
+        assertEquals(2, sketch.estimate(42));
+    }
+
+    @Test
+    void clearResetsCounters() {
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+        sketch.add(42);
+
+        sketch.clear();
+
+        assertEquals(0, sketch.estimate(42));
+    }
+
+    @Test
+    void rejectsNonPositiveDimensions() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(64, 0));
+    }
+}
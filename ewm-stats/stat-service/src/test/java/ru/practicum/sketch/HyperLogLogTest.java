@@ -0,0 +1,109 @@
+package ru.practicum.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void precisionForClampsToSupportedRange() {
+        assertEquals(14, HyperLogLog.precisionFor(0.01));
+        assertEquals(11, HyperLogLog.precisionFor(0.023));
+        assertEquals(HyperLogLog.MAX_PRECISION, HyperLogLog.precisionFor(0.0001));
+        assertEquals(HyperLogLog.MIN_PRECISION, HyperLogLog.precisionFor(0.5));
+    }
+
+    @Test
+    void rejectsUnsupportedPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(HyperLogLog.MIN_PRECISION - 1));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(HyperLogLog.MAX_PRECISION + 1));
+    }
+
+    @Test
+    void estimatesWithinExpectedError() {
+        HyperLogLog sketch = sketch(14, 0, 100_000);
+
+        assertWithinError(100_000, sketch.cardinality(), 14);
+    }
+
+    @Test
+    void countsSmallSetsExactly() {
+        HyperLogLog sketch = sketch(14, 0, 10);
+        offer(sketch, 0, 10);
+
+        assertEquals(10, sketch.cardinality());
+    }
+
+    @Test
+    void serializesSmallSketchAsSparse() {
+        HyperLogLog sketch = sketch(14, 0, 100);
+
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(1, bytes[0]);
+        assertTrue(bytes.length < 2 + 100 * 3 + 1);
+        assertEquals(sketch.cardinality(), HyperLogLog.fromBytes(bytes).cardinality());
+    }
+
+    @Test
+    void promotesToDenseOnceSparseIsLarger() {
+        HyperLogLog sketch = sketch(10, 0, 100_000);
+
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(0, bytes[0]);
+        assertEquals(2 + (1 << 10), bytes.length);
+        assertArrayEquals(bytes, HyperLogLog.fromBytes(bytes).toBytes());
+    }
+
+    @Test
+    void mergeIsUnion() {
+        HyperLogLog left = sketch(14, 0, 50_000);
+        HyperLogLog right = sketch(14, 25_000, 75_000);
+
+        assertWithinError(75_000, left.merge(right).cardinality(), 14);
+    }
+
+    @Test
+    void mergeFoldsToLowerPrecision() {
+        HyperLogLog fine = sketch(14, 0, 50_000);
+        HyperLogLog coarse = sketch(10, 25_000, 75_000);
+
+        HyperLogLog merged = fine.merge(coarse);
+
+        assertEquals(10, merged.getPrecision());
+        assertWithinError(75_000, merged.cardinality(), 10);
+        assertEquals(10, sketch(10, 25_000, 75_000).merge(sketch(14, 0, 50_000)).getPrecision());
+    }
+
+    @Test
+    void foldMatchesSketchBuiltAtLowerPrecision() {
+        HyperLogLog folded = new HyperLogLog(8).merge(sketch(14, 0, 20_000));
+
+        assertArrayEquals(sketch(8, 0, 20_000).toBytes(), folded.toBytes());
+    }
+
+    private static HyperLogLog sketch(int precision, int from, int to) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        offer(sketch, from, to);
+        return sketch;
+    }
+
+    private static void offer(HyperLogLog sketch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            sketch.offer(ByteBuffer.allocate(Integer.BYTES).putInt(i).array());
+        }
+    }
+
+    private static void assertWithinError(long expected, long actual, int precision) {
+        double error = 3 * 1.04 / Math.sqrt(1 << precision);
+        assertTrue(Math.abs(actual - expected) <= expected * error,
+                () -> "оценка " + actual + " вне допустимой погрешности для " + expected);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.utils;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class IpAddressesTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"::", "::1", "1::", "2001:db8::8a2e:370:7334", "2001:0db8:85a3:0000:0000:8a2e:0370:7334",
+            "fe80::1:2", "1:2:3:4:5:6:7::", "::ffff:192.168.0.1", "64:ff9b::10.0.0.1", "1:2:3:4:5:6:1.2.3.4",
+            "[::1]", "FE80::ABCD"})
+    void parsesIpv6LiteralsLikeInetAddress(String ip) throws UnknownHostException {
+        assertArrayEquals(expected(ip), IpAddresses.toBytes(ip));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0.0.0.0", "127.0.0.1", "192.163.0.1", "255.255.255.255"})
+    void mapsIpv4IntoIpv6(String ip) throws UnknownHostException {
+        assertArrayEquals(expected(ip), IpAddresses.toBytes(ip));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"localhost", "host:80", ":1", "1:", "1:::2", "1::2::3", "12345::", "1:2:3:4:5:6:7:8:9",
+            "1:2:3:4:5:6:7:8::", "::1.2.3", "::256.0.0.1", "1.2.3.4.5", "fe80::1%eth0", "::g", ""})
+    void keepsNonAddressesAsText(String ip) {
+        assertArrayEquals(ip.getBytes(StandardCharsets.UTF_8), IpAddresses.toBytes(ip));
+    }
+
+    private static byte[] expected(String ip) throws UnknownHostException {
+        byte[] address = InetAddress.getByName(ip).getAddress();
+        if (address.length == IpAddresses.LENGTH) {
+            return address;
+        }
+        byte[] bytes = new byte[IpAddresses.LENGTH];
+        bytes[10] = (byte) 0xff;
+        bytes[11] = (byte) 0xff;
+        System.arraycopy(address, 0, bytes, 12, address.length);
+        return bytes;
+    }
+}
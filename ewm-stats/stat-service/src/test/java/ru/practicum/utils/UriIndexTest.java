@@ -0,0 +1,69 @@
+package ru.practicum.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UriIndexTest {
+
+    private final UriIndex index = new UriIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.put("/events", 1);
+        index.put("/events/1", 2);
+        index.put("/events/12", 3);
+        index.put("/events/12/comments", 4);
+        index.put("/events/2/comments", 5);
+        index.put("/eventsx", 6);
+        index.put("/compilations/1", 7);
+    }
+
+    @Test
+    void findsExactUriWithoutWildcard() {
+        assertEquals(List.of(3), index.findByPattern("/events/12"));
+        assertEquals(List.of(), index.findByPattern("/events/3"));
+    }
+
+    @Test
+    void findsTrailingWildcardByPrefix() {
+        assertEquals(Set.of(2, 3, 4, 5), new HashSet<>(index.findByPattern("/events/*")));
+        assertEquals(Set.of(2, 3, 4), new HashSet<>(index.findByPattern("/events/1*")));
+    }
+
+    @Test
+    void findsInnerWildcard() {
+        assertEquals(Set.of(4, 5), new HashSet<>(index.findByPattern("/events/*/comments")));
+        assertEquals(Set.of(2, 3, 4, 5, 7), new HashSet<>(index.findByPattern("/*/*")));
+    }
+
+    @Test
+    void quotesRegexCharacters() {
+        index.put("/events/(1)", 8);
+
+        assertEquals(List.of(8), index.findByPattern("/events/(*)"));
+    }
+
+    @Test
+    void findByPrefixStopsAtRangeEnd() {
+        assertEquals(Set.of(1, 2, 3, 4, 5, 6), new HashSet<>(index.findByPrefix("/events")));
+        assertEquals(List.of(), index.findByPrefix("/users"));
+    }
+
+    @Test
+    void matchesSingleUri() {
+        assertTrue(UriIndex.matches("/events/*", "/events/42"));
+        assertTrue(UriIndex.matches("/events/*/comments", "/events/42/comments"));
+        assertTrue(UriIndex.matches("/events/42", "/events/42"));
+        assertFalse(UriIndex.matches("/events/*/comments", "/events/42"));
+        assertFalse(UriIndex.matches("/events/*", "/compilations/1"));
+        assertFalse(UriIndex.matches("/events/42", "/events/4"));
+    }
+}